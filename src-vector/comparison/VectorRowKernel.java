@@ -0,0 +1,152 @@
+package comparison;
+
+import jdk.incubator.vector.DoubleVector;
+import jdk.incubator.vector.IntVector;
+import jdk.incubator.vector.VectorMask;
+import jdk.incubator.vector.VectorOperators;
+import jdk.incubator.vector.VectorShape;
+import jdk.incubator.vector.VectorSpecies;
+import matrix.AlignmentRow;
+import matrix.MatrixOrigin;
+
+/**
+ * Vectorized kernel that computes several cases of a row at the same time with
+ * the module jdk.incubator.vector. Each lane follows exactly the operations of
+ * the {@link ScalarRowKernel}, so scores are the same. The columns that don't
+ * fill a complete vector are computed by the scalar kernel.
+ *
+ * This class is only compiled with the profile "vector" (java 17 and more) and
+ * the program must be launched with the option --add-modules
+ * jdk.incubator.vector to use it.
+ *
+ * Experimental : this kernel is currently slower than the scalar one (about
+ * twice the time on the sample data, and also on rows of 3000 columns). Each
+ * group of columns needs about ten gathers, some of them through index arrays,
+ * and the k values still come from the scalar binary search, so the few
+ * operations left in lanes don't pay for the gathers
+ *
+ * @author Gregoire Prunier, Albane Lysiak, Dominique Tessier
+ *
+ */
+class VectorRowKernel extends AlignmentRowKernel {
+
+	/**
+	 * Masses are compared with double lanes and scores with int lanes, so the
+	 * int species has the same number of lanes as the preferred double species
+	 */
+	private static final VectorSpecies<Double> DOUBLE_SPECIES = DoubleVector.SPECIES_PREFERRED;
+	private static final VectorSpecies<Integer> INT_SPECIES = VectorSpecies.of(int.class,
+			VectorShape.forBitSize(DOUBLE_SPECIES.length() * Integer.SIZE));
+
+	/**
+	 * Lane indices 0, 1, 2, ... to get the column of each lane
+	 */
+	private static final IntVector LANE_INDICES = IntVector.zero(INT_SPECIES).addIndex(1);
+
+	private final ScalarRowKernel _tailKernel = new ScalarRowKernel();
+
+	/**
+	 * Index maps of gathers (k columns, chain rows, origin columns and last
+	 * aligned rows of the lanes)
+	 */
+	private final int[] _kIndices = new int[INT_SPECIES.length()];
+	private final int[] _chainIndices = new int[INT_SPECIES.length()];
+	private final int[] _originIndices = new int[INT_SPECIES.length()];
+	private final int[] _lastAlignIndices = new int[INT_SPECIES.length()];
+
+	@Override
+	void fillRow(AlignmentRow row, double[] theoMasses, double[] expeMasses, int theoIndiceI, boolean lastAminoAcid,
+			int firstJ, int lastJ, int scoreNonAlign, double precision) {
+		int[] kValues = row.getKValues();
+		int[] prevScores = row.getPrevScores();
+		int[] prevAligns = row.getPrevAligns();
+		int[] prevRowMaxScores = row.getPrevRowMaxScores();
+		int[] prevRowMaxOrigins = row.getPrevRowMaxOrigins();
+		int[] lastChainRows = row.getLastChainRows();
+		int[] lastAlignRows = row.getLastAlignRows();
+		int[] alignScores = row.getAlignScores();
+		int[] reAlignNOScores = row.getReAlignNOScores();
+		int[] reAlignScores = lastAminoAcid ? row.getReAlignEndScores() : row.getReAlignScores();
+		int[] rowScores = row.getRowScores();
+		int[] rowOrigins = row.getRowOrigins();
+		int[] rowAligns = row.getRowAligns();
+
+		DoubleVector theoMassI = DoubleVector.broadcast(DOUBLE_SPECIES, theoMasses[theoIndiceI]);
+		DoubleVector theoMassPrev = DoubleVector.broadcast(DOUBLE_SPECIES, theoMasses[theoIndiceI - 1]);
+
+		int lanes = INT_SPECIES.length();
+		int j = firstJ;
+		for (; j + lanes - 1 <= lastJ; j += lanes) {
+			IntVector k = IntVector.fromArray(INT_SPECIES, kValues, j);
+			VectorMask<Integer> notFound = k.compare(VectorOperators.LT, 0);
+			// lanes without k use the column 0 for gathers, their result is replaced
+			// at the end by a non alignment
+			k.max(0).intoArray(_kIndices, 0);
+
+			IntVector prevScoreK = IntVector.fromArray(INT_SPECIES, prevScores, 0, _kIndices, 0);
+			IntVector prevAlignK = IntVector.fromArray(INT_SPECIES, prevAligns, 0, _kIndices, 0);
+			IntVector reAlignScore = IntVector.fromArray(INT_SPECIES, reAlignScores, j);
+			DoubleVector expeMassK = DoubleVector.fromArray(DOUBLE_SPECIES, expeMasses, 0, _kIndices, 0);
+
+			// alignment with k, or re-alignment if a chain of non alignment has an other
+			// mass offset
+			IntVector.fromArray(INT_SPECIES, lastChainRows, 0, _kIndices, 0).intoArray(_chainIndices, 0);
+			DoubleVector theoMassL = DoubleVector.fromArray(DOUBLE_SPECIES, theoMasses, 0, _chainIndices, 0);
+			DoubleVector deltaIJ = DoubleVector.fromArray(DOUBLE_SPECIES, expeMasses, j).sub(theoMassI);
+			VectorMask<Integer> offsetChanged = expeMassK.sub(theoMassL).sub(deltaIJ).abs()
+					.compare(VectorOperators.GT, precision).cast(INT_SPECIES);
+			VectorMask<Integer> chainOffset = prevAlignK.compare(VectorOperators.EQ, MatrixOrigin.NON_ALIGN)
+					.and(offsetChanged);
+			IntVector scoreAlignK = prevScoreK.add(IntVector.fromArray(INT_SPECIES, alignScores, j))
+					.blend(prevScoreK.add(reAlignScore), chainOffset);
+
+			// best re-alignment from the running maximum of the previous row
+			IntVector bestScore = IntVector.fromArray(INT_SPECIES, prevRowMaxScores, 0, _kIndices, 0);
+			IntVector origin = IntVector.fromArray(INT_SPECIES, prevRowMaxOrigins, 0, _kIndices, 0);
+			VectorMask<Integer> noOrigin = bestScore.compare(VectorOperators.LE, -10000);
+			bestScore = bestScore.blend(-10000, noOrigin);
+			origin = origin.blend(-1, noOrigin);
+			IntVector reScore = bestScore.add(reAlignScore);
+			IntVector reType = IntVector.broadcast(INT_SPECIES, MatrixOrigin.RE_ALIGN);
+
+			if (theoIndiceI > 1) {
+				origin.max(0).intoArray(_originIndices, 0);
+				IntVector lastAlign = IntVector.fromArray(INT_SPECIES, lastAlignRows, 0, _originIndices, 0);
+				lastAlign = lastAlign.blend(theoIndiceI - 1, lastAlign.compare(VectorOperators.EQ, -1));
+				lastAlign.intoArray(_lastAlignIndices, 0);
+
+				DoubleVector expeMassOrigin = DoubleVector.fromArray(DOUBLE_SPECIES, expeMasses, 0, _originIndices,
+						0);
+				DoubleVector theoMassLast = DoubleVector.fromArray(DOUBLE_SPECIES, theoMasses, 0, _lastAlignIndices,
+						0);
+				VectorMask<Integer> sameOffset = expeMassK.sub(theoMassPrev).sub(expeMassOrigin.sub(theoMassLast))
+						.abs().compare(VectorOperators.LT, precision).cast(INT_SPECIES);
+				VectorMask<Integer> toAlign = noOrigin.not()
+						.and(lastAlign.compare(VectorOperators.NE, theoIndiceI - 1)).and(sameOffset);
+
+				reScore = reScore.blend(bestScore.add(IntVector.fromArray(INT_SPECIES, reAlignNOScores, j)),
+						toAlign);
+				reType = reType.blend(MatrixOrigin.ALIGN, toAlign);
+			}
+
+			VectorMask<Integer> takeAlign = scoreAlignK.compare(VectorOperators.GE, reScore);
+			IntVector score = reScore.blend(scoreAlignK, takeAlign);
+			IntVector scoreOrigin = origin.blend(k, takeAlign);
+			IntVector type = reType.blend(MatrixOrigin.ALIGN, takeAlign);
+
+			// no amino acid found : non alignment from the previous row
+			score = score.blend(IntVector.fromArray(INT_SPECIES, prevScores, j).add(scoreNonAlign), notFound);
+			scoreOrigin = scoreOrigin.blend(LANE_INDICES.add(j), notFound);
+			type = type.blend(MatrixOrigin.NON_ALIGN, notFound);
+
+			score.intoArray(rowScores, j);
+			scoreOrigin.intoArray(rowOrigins, j);
+			type.intoArray(rowAligns, j);
+		}
+
+		if (j <= lastJ)
+			_tailKernel.fillRow(row, theoMasses, expeMasses, theoIndiceI, lastAminoAcid, j, lastJ, scoreNonAlign,
+					precision);
+	}
+
+}
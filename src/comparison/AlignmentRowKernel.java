@@ -0,0 +1,90 @@
+package comparison;
+
+import matrix.AlignmentRow;
+
+/**
+ * Kernel that computes the cases of one row of the alignment from the previous
+ * row stored in an {@link AlignmentRow}. An experimental vectorized kernel
+ * (using the module jdk.incubator.vector) is used when it is compiled with the
+ * profile "vector" and when the module is available at runtime, else the
+ * scalar kernel is used. Both kernels give exactly the same scores, but the
+ * vectorized kernel is currently slower (see {@link VectorRowKernel})
+ *
+ * @author Gregoire Prunier, Albane Lysiak, Dominique Tessier
+ *
+ */
+abstract class AlignmentRowKernel {
+
+	/**
+	 * Name of the vectorized kernel class, only present in the "vector" build
+	 */
+	private static final String VECTOR_KERNEL = "comparison.VectorRowKernel";
+
+	/**
+	 * true if the vectorized kernel can be loaded, checked only once
+	 */
+	private static final boolean VECTOR_AVAILABLE = isVectorKernelAvailable();
+
+	/**
+	 * Compute the score, the origin column and the alignment type of the columns
+	 * firstJ to lastJ of the row theoIndiceI. The k values of these columns must
+	 * be set in the row buffers
+	 *
+	 * @param row           buffers of the previous row and of the actual row
+	 * @param theoMasses    masses of the theoretical spectrum
+	 * @param expeMasses    masses of the experimental spectrum
+	 * @param theoIndiceI   the actual row
+	 * @param lastAminoAcid true if the row is the last amino acid (BETTER_END_RA
+	 *                      score for re-alignments)
+	 * @param firstJ        the first column to compute
+	 * @param lastJ         the last column to compute
+	 * @param scoreNonAlign score to apply when the amino acid is not aligned
+	 * @param precision     Precision of measures
+	 */
+	abstract void fillRow(AlignmentRow row, double[] theoMasses, double[] expeMasses, int theoIndiceI,
+			boolean lastAminoAcid, int firstJ, int lastJ, int scoreNonAlign, double precision);
+
+	/**
+	 * Give a new kernel for an alignment object (kernels are not shared between
+	 * threads)
+	 *
+	 * @return the vectorized kernel if available, else the scalar kernel
+	 */
+	static AlignmentRowKernel create() {
+		if (VECTOR_AVAILABLE) {
+			AlignmentRowKernel kernel = loadVectorKernel();
+			if (kernel != null)
+				return kernel;
+		}
+		return new ScalarRowKernel();
+	}
+
+	/**
+	 * Check if the vectorized kernel class is in the build and can be
+	 * initialized, which needs the module jdk.incubator.vector for its species
+	 *
+	 * @return true if the vectorized kernel can be used
+	 */
+	private static boolean isVectorKernelAvailable() {
+		try {
+			Class.forName(VECTOR_KERNEL);
+			return true;
+		} catch (ClassNotFoundException | LinkageError e) {
+			return false;
+		}
+	}
+
+	/**
+	 * Try to instantiate the vectorized kernel
+	 *
+	 * @return the kernel, or null if the class or the module is missing
+	 */
+	private static AlignmentRowKernel loadVectorKernel() {
+		try {
+			return (AlignmentRowKernel) Class.forName(VECTOR_KERNEL).getDeclaredConstructor().newInstance();
+		} catch (ReflectiveOperationException | LinkageError e) {
+			return null;
+		}
+	}
+
+}
@@ -0,0 +1,311 @@
+package comparison;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.util.Arrays;
+
+import utility.FixedDecimalFormat;
+import utility.SGXProperties;
+
+/**
+ * Structured form of a hit modified. The written form, for example
+ * [D]AT[12,34]NVG_[3,21], is only made for the output.
+ *
+ * A hit modified is the sequence of the residues of the peptide, each found or
+ * not by the alignment (not found residues are written between brackets), the
+ * mass shifts between residues and the not-aligned mass left at the end. The
+ * shift at position p is written just before the residue p, the shift at
+ * position length() is written after the last residue. Shifts are kept at the
+ * precision they are written with, so computations on the structure give the
+ * same masses as the written form
+ *
+ * @author Gregoire Prunier, Albane Lysiak, Dominique Tessier
+ *
+ */
+public class HitModified {
+
+	/**
+	 * Formats of the shifts : SGXProperties.DECIMALFORM, or 3 decimals for shifts
+	 * where the not-aligned mass has been cumulated
+	 */
+	public static final byte DECIMAL_FORM = 0;
+	public static final byte THREE_DECIMALS = 1;
+
+	// Attributes
+	/**
+	 * Residues of the peptide and if they are found by the alignment
+	 */
+	private char[] _residues;
+	private boolean[] _found;
+	/**
+	 * Shift written before each residue (and after the last one), NaN if none
+	 */
+	private double[] _shifts;
+	private byte[] _shiftFormats;
+	/**
+	 * Number of residues
+	 */
+	private int _length;
+	/**
+	 * The not-aligned mass written at the end, NaN if none
+	 */
+	private double _notAlignedMass;
+
+	// Constructors
+	/**
+	 * Constructor of a hit modified with the residues of a peptide, all not found
+	 * and without shift
+	 *
+	 * @param sequence : The peptide sequence
+	 */
+	public HitModified(String sequence) {
+		_length = sequence.length();
+		_residues = sequence.toCharArray();
+		_found = new boolean[_length];
+		_shifts = new double[_length + 1];
+		_shiftFormats = new byte[_length + 1];
+		Arrays.fill(_shifts, Double.NaN);
+		_notAlignedMass = Double.NaN;
+	}
+
+	/**
+	 * Copy constructor
+	 *
+	 * @param other : the hit modified to copy
+	 */
+	public HitModified(HitModified other) {
+		_length = other._length;
+		_residues = other._residues.clone();
+		_found = other._found.clone();
+		_shifts = other._shifts.clone();
+		_shiftFormats = other._shiftFormats.clone();
+		_notAlignedMass = other._notAlignedMass;
+	}
+
+	/**
+	 * Give the hit modified of a peptide where all residues are found (the
+	 * unmodified peptide)
+	 *
+	 * @param sequence : The peptide sequence
+	 * @return the hit modified
+	 */
+	public static HitModified fromSequence(String sequence) {
+		HitModified hit = new HitModified(sequence);
+		Arrays.fill(hit._found, true);
+		return hit;
+	}
+
+	// Operators
+	/**
+	 * Remove residues of the sequence. If a shift is written before the first
+	 * removed residue and an other one after the last removed residue, they are
+	 * cumulated
+	 *
+	 * @param start : the first residue to remove
+	 * @param count : the number of residues to remove
+	 */
+	public void removeResidues(int start, int count) {
+		if (count == 0)
+			return;
+		int end = start + count;
+		double shift = _shifts[end];
+		byte format = _shiftFormats[end];
+		if (hasShift(start) && hasShift(end)) {
+			shift = _shifts[start] + _shifts[end];
+			format = DECIMAL_FORM;
+		} else if (hasShift(start)) {
+			shift = _shifts[start];
+			format = _shiftFormats[start];
+		}
+
+		System.arraycopy(_residues, end, _residues, start, _length - end);
+		System.arraycopy(_found, end, _found, start, _length - end);
+		System.arraycopy(_shifts, end, _shifts, start, _length - end + 1);
+		System.arraycopy(_shiftFormats, end, _shiftFormats, start, _length - end + 1);
+		_length -= count;
+		_shifts[start] = shift;
+		_shiftFormats[start] = format;
+	}
+
+	/**
+	 * Set a shift written with SGXProperties.DECIMALFORM
+	 *
+	 * @param position : the residue written after the shift
+	 * @param shift    : the mass shift
+	 */
+	public void setShift(int position, double shift) {
+		setShift(position, shift, DECIMAL_FORM);
+	}
+
+	/**
+	 * Set a shift, rounded at the precision it is written with
+	 *
+	 * @param position : the residue written after the shift
+	 * @param shift    : the mass shift
+	 * @param format   : DECIMAL_FORM or THREE_DECIMALS
+	 */
+	public void setShift(int position, double shift, byte format) {
+		double value;
+		if (format == THREE_DECIMALS)
+			value = new BigDecimal(Double.toString(shift)).setScale(3, RoundingMode.HALF_UP).doubleValue();
+		else
+			value = SGXProperties.DECIMALFORM.round(shift);
+		// a small negative shift is written -0,00
+		if (value == 0 && isNegative(shift))
+			value = -0.0;
+		_shifts[position] = value;
+		_shiftFormats[position] = format;
+	}
+
+	/**
+	 * Remove the shift written before a residue
+	 *
+	 * @param position : the residue written after the shift
+	 */
+	public void removeShift(int position) {
+		_shifts[position] = Double.NaN;
+	}
+
+	/**
+	 * Move a shift before an other residue
+	 *
+	 * @param from : the residue written after the shift
+	 * @param to   : the residue where the shift is moved (without shift)
+	 */
+	public void moveShift(int from, int to) {
+		_shifts[to] = _shifts[from];
+		_shiftFormats[to] = _shiftFormats[from];
+		_shifts[from] = Double.NaN;
+	}
+
+	/**
+	 * Give the index of the first character of a residue in the written hit
+	 * modified
+	 *
+	 * @param position : the residue
+	 * @return the index of '[' if the residue is not found, else of the residue
+	 */
+	public int getWrittenIndex(int position) {
+		int index = 0;
+		for (int p = 0; p <= position; p++) {
+			if (hasShift(p))
+				index += getShiftLength(p) + 2;
+			if (p < position)
+				index += _found[p] ? 1 : 3;
+		}
+		return index;
+	}
+
+	/**
+	 * Give the number of characters of a mass shift written in the hit modified,
+	 * without writing it
+	 *
+	 * @param position : the residue written after the shift
+	 * @return the length of the shift in text
+	 */
+	public int getShiftLength(int position) {
+		double shift = _shifts[position];
+		if (_shiftFormats[position] == THREE_DECIMALS) {
+			// the shift is already rounded, "%.3f" writes the sign, the integer digits,
+			// the separator and 3 decimals
+			return (isNegative(shift) ? 1 : 0) + FixedDecimalFormat.countDigits((long) Math.abs(shift)) + 4;
+		}
+		return SGXProperties.DECIMALFORM.getLength(shift);
+	}
+
+	/**
+	 * Give the mass shift as written in the hit modified
+	 *
+	 * @param position : the residue written after the shift
+	 * @return the shift in text
+	 */
+	public String formatShift(int position) {
+		return appendShift(new StringBuilder(12), position).toString();
+	}
+
+	/**
+	 * Write the mass shift as written in the hit modified at the end of a text
+	 *
+	 * @param text     : the text where the shift is added
+	 * @param position : the residue written after the shift
+	 * @return the text
+	 */
+	public StringBuilder appendShift(StringBuilder text, int position) {
+		if (_shiftFormats[position] == THREE_DECIMALS)
+			return text.append(String.format("%.3f", _shifts[position]));
+		return SGXProperties.DECIMALFORM.append(text, _shifts[position]);
+	}
+
+	/**
+	 * Check the sign of a shift, -0,00 is negative
+	 *
+	 * @param shift : the mass shift
+	 * @return true if the shift is written with a minus sign
+	 */
+	public static boolean isNegative(double shift) {
+		return Double.compare(shift, 0.0) < 0;
+	}
+
+	/**
+	 * Write the hit modified, for example [D]AT[12,34]NVG_[3,21]
+	 */
+	@Override
+	public String toString() {
+		StringBuilder written = new StringBuilder(3 * _length + 16);
+		for (int p = 0; p <= _length; p++) {
+			if (hasShift(p))
+				appendShift(written.append('['), p).append(']');
+			if (p == _length)
+				break;
+			if (_found[p])
+				written.append(_residues[p]);
+			else
+				written.append('[').append(_residues[p]).append(']');
+		}
+		if (hasNotAlignedMass())
+			SGXProperties.DECIMALFORM.append(written.append("_["), _notAlignedMass).append(']');
+		return written.toString();
+	}
+
+	// Getters and Setters
+	public int length() {
+		return _length;
+	}
+
+	public char getResidue(int position) {
+		return _residues[position];
+	}
+
+	public boolean isFound(int position) {
+		return _found[position];
+	}
+
+	public void setFound(int position, boolean found) {
+		_found[position] = found;
+	}
+
+	public boolean hasShift(int position) {
+		return !Double.isNaN(_shifts[position]);
+	}
+
+	public double getShift(int position) {
+		return _shifts[position];
+	}
+
+	public boolean hasNotAlignedMass() {
+		return !Double.isNaN(_notAlignedMass);
+	}
+
+	public double getNotAlignedMass() {
+		return _notAlignedMass;
+	}
+
+	public void setNotAlignedMass(double notAlignedMass) {
+		_notAlignedMass = notAlignedMass;
+	}
+
+	public void removeNotAlignedMass() {
+		_notAlignedMass = Double.NaN;
+	}
+
+}
@@ -0,0 +1,92 @@
+package comparison;
+
+import matrix.AlignmentRow;
+import matrix.MatrixOrigin;
+
+/**
+ * Scalar kernel that computes the cases of a row one by one
+ *
+ * @author Gregoire Prunier, Albane Lysiak, Dominique Tessier
+ *
+ */
+class ScalarRowKernel extends AlignmentRowKernel {
+
+	@Override
+	void fillRow(AlignmentRow row, double[] theoMasses, double[] expeMasses, int theoIndiceI, boolean lastAminoAcid,
+			int firstJ, int lastJ, int scoreNonAlign, double precision) {
+		int[] kValues = row.getKValues();
+		int[] prevScores = row.getPrevScores();
+		int[] prevAligns = row.getPrevAligns();
+		int[] prevRowMaxScores = row.getPrevRowMaxScores();
+		int[] prevRowMaxOrigins = row.getPrevRowMaxOrigins();
+		int[] lastChainRows = row.getLastChainRows();
+		int[] lastAlignRows = row.getLastAlignRows();
+		int[] alignScores = row.getAlignScores();
+		int[] reAlignNOScores = row.getReAlignNOScores();
+		// the last amino acid can have a specific re-align score (BETTER_END_RA)
+		int[] reAlignScores = lastAminoAcid ? row.getReAlignEndScores() : row.getReAlignScores();
+		int[] rowScores = row.getRowScores();
+		int[] rowOrigins = row.getRowOrigins();
+		int[] rowAligns = row.getRowAligns();
+
+		double theoMassI = theoMasses[theoIndiceI];
+		double theoMassPrev = theoMasses[theoIndiceI - 1];
+
+		for (int j = firstJ; j <= lastJ; j++) {
+			int k = kValues[j];
+			if (k == -1) {
+				rowScores[j] = prevScores[j] + scoreNonAlign;
+				rowOrigins[j] = j;
+				rowAligns[j] = MatrixOrigin.NON_ALIGN;
+				continue;
+			}
+
+			int scoreAlignK = prevScores[k] + alignScores[j];
+			// if it come from non align, we must verify that there is no offset from
+			// previous align
+			if (prevAligns[k] == MatrixOrigin.NON_ALIGN) {
+				int l = lastChainRows[k];
+				if (Math.abs((expeMasses[k] - theoMasses[l]) - (expeMasses[j] - theoMassI)) > precision)
+					scoreAlignK = prevScores[k] + reAlignScores[j];
+			}
+
+			// m is a j value between 0 and k where a realign can be do if we accept mass
+			// offset. The best m is given by the running maximum of the previous row
+			int bestScore = -10000;
+			int origin = -1;
+			if (prevRowMaxScores[k] > bestScore) {
+				bestScore = prevRowMaxScores[k];
+				origin = prevRowMaxOrigins[k];
+			}
+			int reAlignScore = bestScore + reAlignScores[j];
+			int reAlignType = MatrixOrigin.RE_ALIGN;
+
+			if (origin != -1) {
+				// We check for the last alignment if we have chain of Non Alignment to
+				// compare the last mass offset found
+				int lastAlign = lastAlignRows[origin];
+				if (lastAlign == -1)
+					lastAlign = theoIndiceI - 1;
+
+				// if the difference of mass offset between actual state and last align (or
+				// realign) is null, we consider that to an alignment
+				if ((lastAlign != (theoIndiceI - 1)) && (theoIndiceI > 1) && (Math.abs(
+						(expeMasses[k] - theoMassPrev) - (expeMasses[origin] - theoMasses[lastAlign])) < precision)) {
+					reAlignScore = bestScore + reAlignNOScores[j];
+					reAlignType = MatrixOrigin.ALIGN;
+				}
+			}
+
+			if (scoreAlignK >= reAlignScore) {
+				rowScores[j] = scoreAlignK;
+				rowOrigins[j] = k;
+				rowAligns[j] = MatrixOrigin.ALIGN;
+			} else {
+				rowScores[j] = reAlignScore;
+				rowOrigins[j] = origin;
+				rowAligns[j] = reAlignType;
+			}
+		}
+	}
+
+}
@@ -0,0 +1,410 @@
+package comparison;
+
+import java.util.Arrays;
+
+import utility.AminoAcids;
+
+/**
+ * Generate the peaks of a hit modified and count the peaks shared with the
+ * experimental spectrum, with primitive buffers that are reused between calls.
+ *
+ * The b peaks of a base hit modified are kept with the state of the generation
+ * before each position, so a variant of the base (a shift moved before an
+ * earlier residue or a shift removed) is generated again only from the first
+ * position that changes. The peaks after this position must be summed again in
+ * the same order to give exactly the same masses as a complete generation
+ *
+ * @author Gregoire Prunier, Albane Lysiak, Dominique Tessier
+ *
+ */
+class SharedPeakEvaluator {
+
+	// Attributes
+	/**
+	 * The base hit modified and the precision used to generate its peaks
+	 */
+	private HitModified _base;
+	private double _precision;
+
+	/**
+	 * b peaks of the base, the number of b peaks and the sum of masses before each
+	 * position (the position length() + 1 gives the state at the end)
+	 */
+	private double[] _basePeaks = new double[64];
+	private int[] _firstPeaks = new int[32];
+	private double[] _bSums = new double[32];
+
+	/**
+	 * Peaks of the last generated hit modified and the sum of its b masses
+	 */
+	private double[] _peaks = new double[128];
+	private double _bSum;
+
+	/**
+	 * Results of the last final annotation : the number of shared peaks, the sum
+	 * of intensities of the experimental peaks explained by the hit modified and
+	 * for each residue if it is found (by the alignment or by its b or y peak)
+	 */
+	private int _nbSharedPeaks;
+	private double _explainedIntensity;
+	private boolean[] _foundResidues = new boolean[32];
+
+	// Operators
+	/**
+	 * Set the hit modified that is modified by the next evaluations
+	 *
+	 * @param base      : The hit modified
+	 * @param precision : the precision of the instrument
+	 */
+	void setBase(HitModified base, double precision) {
+		_base = base;
+		_precision = precision;
+		int length = base.length();
+		if (_firstPeaks.length < length + 2) {
+			_firstPeaks = new int[length + 2];
+			_bSums = new double[length + 2];
+		}
+		// a shift and the 2 peaks that frame a found amino acid at most for each
+		// position
+		if (_basePeaks.length < 3 * length + 2)
+			_basePeaks = new double[3 * length + 2];
+
+		double bSum = AminoAcids.getUnitMass("NT");
+		int nbPeaks = 0;
+		for (int i = 0; i <= length; i++) {
+			_firstPeaks[i] = nbPeaks;
+			_bSums[i] = bSum;
+
+			if (base.hasShift(i)) {
+				bSum += base.getShift(i);
+				_basePeaks[nbPeaks++] = bSum;
+			}
+			if (i == length)
+				break;
+
+			if (!base.isFound(i)) {
+				bSum += AminoAcids.getUnitMass(base.getResidue(i));
+				_basePeaks[nbPeaks++] = bSum;
+			} else {
+				// the 2 peaks that frame the amino acid if necessary
+				if (nbPeaks == 0 || Math.abs(_basePeaks[nbPeaks - 1] - bSum) > precision)
+					_basePeaks[nbPeaks++] = bSum;
+				bSum = bSum + AminoAcids.getUnitMass(base.getResidue(i));
+				_basePeaks[nbPeaks++] = bSum;
+			}
+		}
+		_firstPeaks[length + 1] = nbPeaks;
+		_bSums[length + 1] = bSum;
+	}
+
+	/**
+	 * Generate the peaks of the base hit modified
+	 *
+	 * @return the number of peaks generated
+	 */
+	int generateBase() {
+		return generateFrom(_base.length() + 1, -1, -1);
+	}
+
+	/**
+	 * Count the peaks shared between the base hit modified and the experimental
+	 * spectrum
+	 *
+	 * @param experimentalMasses : The sorted masses of the experimental spectrum
+	 * @return the number of shared peaks
+	 */
+	int countBase(double[] experimentalMasses) {
+		return countSharedPeaks(generateBase(), experimentalMasses);
+	}
+
+	/**
+	 * Count the shared peaks when a shift of the base is moved before an earlier
+	 * residue, the base is not changed
+	 *
+	 * @param from               : the residue written after the shift
+	 * @param to                 : the residue where the shift is moved (before
+	 *                           from)
+	 * @param experimentalMasses : The sorted masses of the experimental spectrum
+	 * @return the number of shared peaks
+	 */
+	int countWithMovedShift(int from, int to, double[] experimentalMasses) {
+		return countSharedPeaks(generateFrom(to, from, to), experimentalMasses);
+	}
+
+	/**
+	 * Count the shared peaks when a shift of the base is removed, the base is not
+	 * changed
+	 *
+	 * @param position           : the residue written after the shift
+	 * @param experimentalMasses : The sorted masses of the experimental spectrum
+	 * @return the number of shared peaks
+	 */
+	int countWithoutShift(int position, double[] experimentalMasses) {
+		return countSharedPeaks(generateFrom(position, position, -1), experimentalMasses);
+	}
+
+	/**
+	 * Make the final annotation of a hit modified in one pass over its sorted peaks
+	 * and the sorted experimental peaks : the shared peaks (with the precision +
+	 * 0.005 like {@link #countBase(double[])}) and the explained intensity (with
+	 * the precision, + 0.05 from 1000 Da). A residue not found by the alignment is
+	 * found if the last b peak of the sequence ending with it, or the y peak of the
+	 * sequence starting with it, is an experimental peak. The hit modified becomes
+	 * the base
+	 *
+	 * @param modified              : The hit modified
+	 * @param experimentalMasses    : The sorted masses of the experimental spectrum
+	 * @param experimentalIntensity : The intensities of these masses
+	 * @param precision             : the precision of the instrument
+	 */
+	void annotate(HitModified modified, double[] experimentalMasses, double[] experimentalIntensity,
+			double precision) {
+		setBase(modified, precision);
+		int nbPeaks = generateBase();
+
+		int nbSharedPeaks = 0;
+		double sharedPrecision = precision + 0.005;
+		double prevSharedPeak = 0.0;
+		int sharedIndex = 0;
+
+		double explainedIntensity = 0.0;
+		double intensityPrecision = precision;
+		double prevExplainedPeak = 0.0;
+		int explainedIndex = 0;
+		boolean changePrecision = false;
+
+		for (int i = 0; i < nbPeaks; i++) {
+			double modPeak = _peaks[i];
+
+			if (Math.abs(modPeak - prevSharedPeak) > sharedPrecision) {
+				while (sharedIndex < experimentalMasses.length) {
+					double expePeak = experimentalMasses[sharedIndex];
+					if (Math.abs(modPeak - expePeak) < sharedPrecision) {
+						nbSharedPeaks += 1;
+						prevSharedPeak = modPeak;
+						break;
+					} else if (expePeak > modPeak)
+						break;
+					sharedIndex++;
+				}
+			}
+
+			// we add a variation to the precision due to a possible error increased by
+			// amino acid mass addition, experimental peaks already passed can be in the
+			// larger precision
+			if (!changePrecision && modPeak >= 1000.0) {
+				changePrecision = true;
+				intensityPrecision += 0.05;
+				explainedIndex = 0;
+			}
+			if (Math.abs(modPeak - prevExplainedPeak) > intensityPrecision) {
+				while (explainedIndex < experimentalMasses.length) {
+					double expePeak = experimentalMasses[explainedIndex];
+					if (Math.abs(modPeak - expePeak) < intensityPrecision) {
+						explainedIntensity += experimentalIntensity[explainedIndex];
+						prevExplainedPeak = modPeak;
+						break;
+					} else if (expePeak > modPeak)
+						break;
+					explainedIndex++;
+				}
+			}
+		}
+		_nbSharedPeaks = nbSharedPeaks;
+		_explainedIntensity = explainedIntensity;
+
+		int length = modified.length();
+		if (_foundResidues.length < length)
+			_foundResidues = new boolean[length];
+		for (int i = 0; i < length; i++) {
+			_foundResidues[i] = modified.isFound(i);
+			if (!_foundResidues[i]) {
+				// the b peak of the residue is the last b peak of the beginning of the hit
+				// modified, its peaks are the b peaks of the base until the residue
+				ensureCapacity(2 * (3 * length + 2));
+				System.arraycopy(_basePeaks, 0, _peaks, 0, _firstPeaks[i + 1]);
+				_bSum = _bSums[i + 1];
+				double peakB = _peaks[addYPeaks(_firstPeaks[i + 1]) - 2];
+				// the y peak of the residue is the last peak of the end of the hit modified
+				double peakY = _peaks[generate(i, 0, AminoAcids.getUnitMass("NT"), i, -1) - 1];
+
+				_foundResidues[i] = hasPeak(experimentalMasses, peakB, precision)
+						|| hasPeak(experimentalMasses, peakY, precision);
+			}
+		}
+	}
+
+	/**
+	 * Generate the peaks of a variant of the base where the shift at position from
+	 * is moved at position to (removed if to is -1). The b peaks before the
+	 * position start are the ones of the base, the others are generated again
+	 *
+	 * @param start : the first position that is generated again
+	 * @param from  : the position of the moved shift (-1 if none)
+	 * @param to    : the new position of the shift (-1 if none)
+	 * @return the number of peaks, sorted and without redundant peaks
+	 */
+	private int generateFrom(int start, int from, int to) {
+		ensureCapacity(2 * (3 * _base.length() + 2));
+		System.arraycopy(_basePeaks, 0, _peaks, 0, _firstPeaks[start]);
+		return generate(start, _firstPeaks[start], _bSums[start], from, to);
+	}
+
+	/**
+	 * Generate the peaks of the base from a position, after the given b peaks,
+	 * where the shift at position from is moved at position to (removed if to is
+	 * -1)
+	 *
+	 * @param start   : the first position to generate
+	 * @param nbPeaks : the number of b peaks already generated
+	 * @param bSum    : the sum of masses before the position start
+	 * @param from    : the position of the moved shift (-1 if none)
+	 * @param to      : the new position of the shift (-1 if none)
+	 * @return the number of peaks, sorted and without redundant peaks
+	 */
+	private int generate(int start, int nbPeaks, double bSum, int from, int to) {
+		int length = _base.length();
+		ensureCapacity(2 * (3 * length + 2));
+
+		for (int i = start; i <= length; i++) {
+			double shift = i == to ? _base.getShift(from) : i == from ? Double.NaN : _base.getShift(i);
+			if (!Double.isNaN(shift)) {
+				bSum += shift;
+				_peaks[nbPeaks++] = bSum;
+			}
+			if (i == length)
+				break;
+
+			if (!_base.isFound(i)) {
+				bSum += AminoAcids.getUnitMass(_base.getResidue(i));
+				_peaks[nbPeaks++] = bSum;
+			} else {
+				if (nbPeaks == 0 || Math.abs(_peaks[nbPeaks - 1] - bSum) > _precision)
+					_peaks[nbPeaks++] = bSum;
+				bSum = bSum + AminoAcids.getUnitMass(_base.getResidue(i));
+				_peaks[nbPeaks++] = bSum;
+			}
+		}
+		_bSum = bSum;
+		return addYPeaks(nbPeaks);
+	}
+
+	/**
+	 * Add the y peaks of the generated b peaks, sort the peaks and remove redundant
+	 * ones
+	 *
+	 * @param nbBPeaks : the number of b peaks
+	 * @return the number of peaks kept
+	 */
+	private int addYPeaks(int nbBPeaks) {
+		double ySum = AminoAcids.getUnitMass("CT") + AminoAcids.getUnitMass("H+") + AminoAcids.getUnitMass("Hy");
+		double massTot = _bSum + ySum;
+
+		int nbPeaks = nbBPeaks;
+		_peaks[nbPeaks++] = massTot - AminoAcids.getUnitMass("H+");
+		for (int i = 0; i < nbBPeaks - 1; i++)
+			_peaks[nbPeaks++] = massTot - _peaks[i];
+
+		Arrays.sort(_peaks, 0, nbPeaks);
+
+		// a peak is removed if it is too close to the previous one of the sorted list
+		int nbKept = 1;
+		double prevPeak = _peaks[0];
+		for (int i = 1; i < nbPeaks; i++) {
+			double actualPeak = _peaks[i];
+			if (!(Math.abs(actualPeak - prevPeak) < _precision))
+				_peaks[nbKept++] = actualPeak;
+			prevPeak = actualPeak;
+		}
+		return nbKept;
+	}
+
+	/**
+	 * Count the generated peaks that are shared with the experimental spectrum
+	 *
+	 * @param nbPeaks            : the number of generated peaks
+	 * @param experimentalMasses : The sorted masses of the experimental spectrum
+	 * @return the number of shared peaks
+	 */
+	private int countSharedPeaks(int nbPeaks, double[] experimentalMasses) {
+		int nbSharedPeaks = 0;
+		double prevPeak = 0.0;
+		double variablePrecision = _precision + 0.005; // value depending on the precision of the amino acids
+
+		// both lists are sorted, so experimental peaks under a generated peak (out of
+		// precision) are under the next generated peaks too and are not checked again
+		int expeIndex = 0;
+		for (int i = 0; i < nbPeaks; i++) {
+			double modPeak = _peaks[i];
+			if (Math.abs(modPeak - prevPeak) > variablePrecision) {
+				while (expeIndex < experimentalMasses.length) {
+					double expePeak = experimentalMasses[expeIndex];
+					if (Math.abs(modPeak - expePeak) < variablePrecision) {
+						nbSharedPeaks += 1;
+						prevPeak = modPeak;
+						break;
+					} else if (expePeak > modPeak)
+						break;
+					expeIndex++;
+				}
+			}
+		}
+		return nbSharedPeaks;
+	}
+
+	/**
+	 * Check if a peak is in the experimental spectrum with a binary search
+	 *
+	 * @param experimentalMasses : The sorted masses of the experimental spectrum
+	 * @param peak               : the mass of the peak
+	 * @param precision          : the precision of the instrument
+	 * @return true if an experimental mass is nearer than the precision
+	 */
+	private static boolean hasPeak(double[] experimentalMasses, double peak, double precision) {
+		// first experimental mass that is not under the peak (out of precision)
+		int low = 0;
+		int high = experimentalMasses.length;
+		while (low < high) {
+			int middle = (low + high) >>> 1;
+			if (experimentalMasses[middle] - peak > -precision)
+				high = middle;
+			else
+				low = middle + 1;
+		}
+		return low < experimentalMasses.length && experimentalMasses[low] - peak < precision;
+	}
+
+	/**
+	 * Grow the peak buffer if needed
+	 *
+	 * @param capacity : the number of peaks to store
+	 */
+	private void ensureCapacity(int capacity) {
+		if (_peaks.length < capacity)
+			_peaks = new double[Math.max(capacity, _peaks.length + (_peaks.length >> 1))];
+	}
+
+	// Getters
+	/**
+	 * @return the number of shared peaks of the last final annotation
+	 */
+	int getNbSharedPeaks() {
+		return _nbSharedPeaks;
+	}
+
+	/**
+	 * @return the explained intensity of the last final annotation
+	 */
+	double getExplainedIntensity() {
+		return _explainedIntensity;
+	}
+
+	/**
+	 * @param position : a residue of the last annotated hit modified
+	 * @return true if the residue is found
+	 */
+	boolean isFoundResidue(int position) {
+		return _foundResidues[position];
+	}
+
+}
@@ -18,6 +18,7 @@ import java.util.Properties;
 import java.util.concurrent.CountDownLatch;
 
 import spectra.ExperimentalSpectrum;
+import spectra.ExperimentalSpectrumCache;
 import spectra.TheoreticalSpectrum;
 import uk.ac.ebi.pride.tools.jmzreader.JMzReader;
 import uk.ac.ebi.pride.tools.jmzreader.JMzReaderException;
@@ -101,11 +102,6 @@ public class SpecGlobX {
 	private JMzReader _experimentalSpectraData;
 	private MgfFile _expeSpectraMgf;
 
-	/**
-	 * The maximum number of peak in all loaded spectra to define the size of matrix
-	 */
-	private int _maxLengthSpectrum = 2000;
-
 	/**
 	 * A map that associate the spectrum Title and the given ID to call it
 	 */
@@ -144,9 +140,6 @@ public class SpecGlobX {
 	public SpecGlobX(String[] args) throws JMzReaderException {
 
 		SGXProperties.setConfigFromFile();
-		if (SGXProperties.FILTER_TYPE == 1) {
-			setMaxLengthSpectrum(SGXProperties.N_MOST_INTENSE * 2);
-		}
 
 		String titleIDcol = "a";
 		String pepIDcol = "b";
@@ -239,7 +232,6 @@ public class SpecGlobX {
 			break;
 		case 1:
 			SGXProperties.N_MOST_INTENSE = valueFilter;
-			setMaxLengthSpectrum(valueFilter * 2);
 			break;
 		}
 
@@ -287,7 +279,9 @@ public class SpecGlobX {
 	 */
 	public void launchAlignments() throws JMzReaderException, FileNotFoundException {
 
-		SpectralAlignment specAlign = new SpectralAlignment(null, null, getMaxLengthSpectrum() * 2);
+		// the alignment workspace is sized by the aligned spectra and grows when needed
+		SpectralAlignment specAlign = new SpectralAlignment(null, null);
+		ExperimentalSpectrumCache spectrumCache = new ExperimentalSpectrumCache(SGXProperties.SPECTRUM_CACHE_SIZE);
 
 		Path pathToFile = Paths.get(getInfoFileCSV().getFilePath().getAbsolutePath());
 
@@ -306,8 +300,7 @@ public class SpecGlobX {
 			// this is for write in the CSV as things progress
 			try (PrintWriter writerCSV = new PrintWriter(getOutputFile())) {
 
-				writerCSV.write(
-						"Title;Peptide;MassDelta;SharedPeaksBeforeAlign;SharedPeaksAfterAlign;PreAlignedPeptide;AlignedPeptide;NbShift;NotAlignedMass;ScoreAlign;IntensityExplained\n");
+				writerCSV.write(getResultHeader());
                 writerCSV.flush();
                 if (writerCSV.checkError()) {
                 	SpecGlobXGUI.LOG.append("Writing in result file generates an issue.");
@@ -342,8 +335,8 @@ public class SpecGlobX {
 					if (getIDScans().containsKey(titleScan)) {
 
 						if (!titleScan.equals(prevTitleScan)) {
-							ExperimentalSpectrum expeSpec = new ExperimentalSpectrum(
-									getExperimentalSpectraData().getSpectrumByIndex(getIDScans().get(titleScan)));
+							ExperimentalSpectrum expeSpec = spectrumCache.getSpectrum(titleScan,
+									getExperimentalSpectraData(), getIDScans().get(titleScan));
 							specAlign.setExpeSpec(expeSpec);
 						}
 
@@ -366,7 +359,11 @@ public class SpecGlobX {
 					   {
 						// write the result of the alignment in the CSV file only if above minScore
 						writerCSV.write(titleScan + ";" + theoSpec.getPeptideSequence() + ";"
-								+ specAlign.getFinalResult() + "\n");}
+								+ specAlign.getFinalResult() + "\n");
+						// the next best alignments follow the best one
+						for (String alternative : specAlign.getAlternativeResults())
+							writerCSV.write(titleScan + ";" + theoSpec.getPeptideSequence() + ";" + alternative + "\n");
+					   }
 						
 						// if the title is not in the map, we indicate it
 					} else {
@@ -382,6 +379,7 @@ public class SpecGlobX {
 				}
 				writerCSV.flush();
 			}
+			showRunSummary(specAlign.getNbPrunedAlignments(), spectrumCache);
 		} catch (
 
 		IOException ioe) {
@@ -394,6 +392,22 @@ public class SpecGlobX {
 
 	}
 
+	/**
+	 * Show the summary of the alignments at the end of the run
+	 * 
+	 * @param nbPruned      : number of alignments stopped because their score
+	 *                      can't reach the minimal score displayed
+	 * @param spectrumCache : the cache of the experimental spectra of the run
+	 */
+	private static void showRunSummary(int nbPruned, ExperimentalSpectrumCache spectrumCache) {
+		String summary = nbPruned + " alignments pruned (best reachable score under "
+				+ SGXProperties.SCORE_MIN_DISPLAY + ")\n" + spectrumCache.getSummary();
+		if (SpecGlobXGUI.commandMode)
+			System.out.println(summary);
+		else
+			SpecGlobXGUI.LOG.append(summary + "\n");
+	}
+
 	/**
 	 * Create multiple instances of Spectral Alignment in multiple Thread to make
 	 * alignments in parallel to decrease execution time
@@ -427,6 +441,7 @@ public class SpecGlobX {
 		long modulo = nbLine % nbThread;
 		List<SpectralAlignmentTask> tasks = new ArrayList<>();
 		CountDownLatch latch = new CountDownLatch(nbThread);
+		ExperimentalSpectrumCache spectrumCache = new ExperimentalSpectrumCache(SGXProperties.SPECTRUM_CACHE_SIZE);
 
 		// Here is the format of reading
 		try (BufferedReader br = Files.newBufferedReader(pathToFile, StandardCharsets.UTF_8)) {
@@ -466,9 +481,10 @@ public class SpecGlobX {
 					line = br.readLine();
 					
 					try {
-
-						listExpSpectra[i] = new ExperimentalSpectrum(
-								getExperimentalSpectraData().getSpectrumByIndex(getIDScans().get(inputArrayTitle[i])));
+						// the spectra of unknown titles are reported by the task
+						if (getIDScans().containsKey(inputArrayTitle[i]))
+							listExpSpectra[i] = spectrumCache.getSpectrum(inputArrayTitle[i],
+									getExperimentalSpectraData(), getIDScans().get(inputArrayTitle[i]));
 					} catch (JMzReaderException e) {
 						if (SpecGlobXGUI.commandMode)
 							System.out.println("Issue when reading spectra file!");
@@ -482,7 +498,7 @@ public class SpecGlobX {
 				
 				// initialization and launch of the process in a Thread
 				SpectralAlignmentTask task = new SpectralAlignmentTask(inputArrayTitle, listExpSpectra,
-						getIDScans(), inputArraySequence, new SpectralAlignment(null, null, getMaxLengthSpectrum() * 2),
+						getIDScans(), inputArraySequence, new SpectralAlignment(null, null),
 						latch, step);
 				Thread t = new Thread(task);
 				t.start();
@@ -493,10 +509,14 @@ public class SpecGlobX {
 			// waiting for all Thread to finish to write results in the CSV file
 			latch.await();
 
+			int nbPruned = 0;
+			for (SpectralAlignmentTask task : tasks)
+				nbPruned += task.getSpecAlign().getNbPrunedAlignments();
+			showRunSummary(nbPruned, spectrumCache);
+
 			// print the result in a csv file
 			try (PrintWriter writerCSV = new PrintWriter(getOutputFile())) {
-				writerCSV.write(
-						"Title;Peptide;MassDelta;SharedPeaksBeforeAlign;SharedPeaksAfterAlign;PreAlignedPeptide;AlignedPeptide;NbShift;NotAlignedMass;ScoreAlign;IntensityExplained\n");
+				writerCSV.write(getResultHeader());
 				writerCSV.flush();
 				
 				for (int i = 0; i < nbThread; i++) {
@@ -586,6 +606,20 @@ public class SpecGlobX {
 
 	}
 
+	/**
+	 * Give the first line of the output csv file, with less columns in score mode
+	 * and with the rank of alignments when several alignments are written
+	 * 
+	 * @return the titles of the columns
+	 */
+	public static String getResultHeader() {
+		if (SGXProperties.SCORE_MODE)
+			return "Title;Peptide;MassDelta;SharedPeaksBeforeAlign;ScoreAlign\n";
+		if (SGXProperties.TOP_K > 1)
+			return "Title;Peptide;MassDelta;SharedPeaksBeforeAlign;SharedPeaksAfterAlign;PreAlignedPeptide;AlignedPeptide;NbShift;NotAlignedMass;ScoreAlign;IntensityExplained;Rank\n";
+		return "Title;Peptide;MassDelta;SharedPeaksBeforeAlign;SharedPeaksAfterAlign;PreAlignedPeptide;AlignedPeptide;NbShift;NotAlignedMass;ScoreAlign;IntensityExplained\n";
+	}
+
 	/**
 	 * Set all modification to apply to amino acids from input in config.properties
 	 * file and update new values
@@ -681,14 +715,6 @@ public class SpecGlobX {
 		_expeSpectraMgf = expeSpectraMgf;
 	}
 
-	public int getMaxLengthSpectrum() {
-		return _maxLengthSpectrum;
-	}
-
-	public void setMaxLengthSpectrum(int maxlengthSpectrum) {
-		_maxLengthSpectrum = maxlengthSpectrum;
-	}
-
 	public static boolean isCommandMode() {
 		return _commandMode;
 	}
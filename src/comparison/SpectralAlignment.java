@@ -1,14 +1,15 @@
 package comparison;
 
 import java.util.ArrayList;
-import java.util.Collections;
-import java.util.Map;
+import java.util.Arrays;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 
+import matrix.AlignmentCheckpoints;
+import matrix.AlignmentRow;
+import matrix.AlignmentWorkspace;
 import matrix.MatrixE;
 import matrix.MatrixOrigin;
-import matrix.MatrixScore;
 import spectra.ExperimentalSpectrum;
 import spectra.TheoreticalSpectrum;
 import utility.AminoAcids;
@@ -25,45 +26,59 @@ public class SpectralAlignment {
 
 	// Attributes
 	/**
-	 * Non Align String to access to the good score to apply
+	 * Scores to apply for each type of experimental peak and each type of
+	 * alignment (see SGXProperties.createScoreTable)
 	 */
-	private static final String _nonAlign = "NonAlign";
+	private int[][] _scoreTable;
 
 	/**
-	 * Re Align String to access to the good score to apply
+	 * Score to apply when an amino acid is not aligned
 	 */
-	private static final String _reAlignNative = "ReAlignNative";
-	private static final String _reAlignSym = "ReAlignSym";
-	private static final String _reAlignBoth = "ReAlignBoth";
-
+	private int _scoreNonAlign;
 	/**
-	 * Align String to access to the good score to apply
+	 * Best score that a row can add to the score of the previous row, whatever
+	 * the type of alignment and of experimental peak
 	 */
-	private static final String _alignNative = "AlignNative";
-	private static final String _alignSym = "AlignSym";
-	private static final String _alignBoth = "AlignBoth";
+	private int _maxStepScore;
 
 	/**
-	 * Re Align String to access to the good score to apply
+	 * Bounds of the best score reachable on the last row, to stop alignments that
+	 * can't reach SCORE_MIN_DISPLAY. For a row i, _suffixBounds[i] is the sum of
+	 * the best scores that the rows i to the last one can add, and
+	 * _maxSuffixBounds[i] is the maximum of these sums from the row i
+	 */
+	private int[] _suffixBounds = new int[0];
+	private int[] _maxSuffixBounds = new int[0];
+	/**
+	 * Number of alignments stopped because their best reachable score is under
+	 * SCORE_MIN_DISPLAY
 	 */
-	private static final String _reAlignNativeNoOffset = "ReAlignNativeNO";
-	private static final String _reAlignSymNoOffset = "ReAlignSymNO";
-	private static final String _reAlignBothNoOffset = "ReAlignBothNO";
+	private int _nbPrunedAlignments;
 
 	/**
-	 * The score matrix where is stored information of the score during alignment
+	 * The workspace where are stored, for each case, the score during alignment
+	 * and where does the alignment come from with the type of alignment
 	 */
-	private MatrixScore _matScore;
+	private AlignmentWorkspace _workspace;
 	/**
-	 * The mass offset matrix which contain all mass differences between
-	 * experimental and theoretical spectra
+	 * Rows kept in linear memory mode to compute again the rows of the workspace,
+	 * and if the actual alignment uses them
+	 */
+	private AlignmentCheckpoints _checkpoints;
+	private boolean _checkpointed;
+	/**
+	 * Buffers of the previous row and of the computed row, indexed by column
+	 */
+	private AlignmentRow _alignmentRow;
+	/**
+	 * The kernel that computes a row of the alignment (vectorized if available)
 	 */
-	private MatrixE _matE;
+	private AlignmentRowKernel _rowKernel;
 	/**
-	 * The matrix where are stored information of where does the alignment come from
-	 * and the type of alignment
+	 * Generates the peaks of the hit modified and counts the shared peaks during
+	 * post-processing
 	 */
-	private MatrixOrigin _matOrigin;
+	private SharedPeakEvaluator _peakEvaluator;
 	/**
 	 * This is the experimental spectrum in which are information of the
 	 * spectrometric mass scan and data of all peaks
@@ -78,15 +93,15 @@ public class SpectralAlignment {
 	 * This is the Hit Modified sequence that contain mass modifications at good
 	 * positions
 	 */
-	private String _hitModifiedSeq;
+	private HitModified _hitModifiedSeq;
 	/**
 	 * This Hit modified is the version that occurs the best number of aligned peaks
 	 */
-	private String _modifiedAfterBestScore;
+	private HitModified _modifiedAfterBestScore;
 	/**
 	 * A HitModified with a different sequence structure
 	 */
-	private String _otherModified;
+	private HitModified _otherModified;
 
 	/**
 	 * number of shared peak between the initial peptide and the experimental
@@ -137,6 +152,11 @@ public class SpectralAlignment {
 	 * The String that contain information of the line to write in the CSV
 	 */
 	private String _finalResult;
+	/**
+	 * The lines of the next best alignments when sg.topK is above 1, from the
+	 * rank 2
+	 */
+	private ArrayList<String> _alternativeResults = new ArrayList<>();
 
 	// Constructor
 	/**
@@ -150,9 +170,18 @@ public class SpectralAlignment {
 	 */
 	public SpectralAlignment(TheoreticalSpectrum theoSpec, ExperimentalSpectrum expeSpec, int maxLengthTheoSpectrum,
 			int maxLengthExpeSpectrum) {
-		setMatScore(new MatrixScore(maxLengthTheoSpectrum, maxLengthExpeSpectrum, getScoreToApply(_nonAlign)));
-		setMatOrigin(new MatrixOrigin(maxLengthTheoSpectrum, maxLengthExpeSpectrum));
-		setMatE(new MatrixE(maxLengthTheoSpectrum, maxLengthExpeSpectrum));
+		setWorkspace(new AlignmentWorkspace(maxLengthTheoSpectrum, maxLengthExpeSpectrum));
+		_scoreTable = SGXProperties.createScoreTable();
+		_scoreNonAlign = getScoreToApply(SGXProperties._nonAlign);
+		_maxStepScore = _scoreNonAlign;
+		for (int[] typeScores : _scoreTable) {
+			for (int score : typeScores)
+				_maxStepScore = Math.max(_maxStepScore, score);
+		}
+		setAlignmentRow(new AlignmentRow(maxLengthExpeSpectrum));
+		_rowKernel = AlignmentRowKernel.create();
+		_peakEvaluator = new SharedPeakEvaluator();
+		_checkpoints = new AlignmentCheckpoints();
 		setTheoSpec(theoSpec);
 		setExpeSpec(expeSpec);
 
@@ -171,49 +200,135 @@ public class SpectralAlignment {
 
 	}
 
+	/**
+	 * The constructor of SpectralAlignment Object without reserved size. The
+	 * workspace is sized with the first spectrum pair and grows only when a bigger
+	 * pair is aligned
+	 * 
+	 * @param theoSpec
+	 * @param expeSpec
+	 */
+	public SpectralAlignment(TheoreticalSpectrum theoSpec, ExperimentalSpectrum expeSpec) {
+		this(theoSpec, expeSpec, 0, 0);
+
+	}
+
 	// Operators
 	/**
 	 * This method is for doing the complete alignment for all peaks. Fill matrices
-	 * at each coordinates and doing the backtrack
+	 * at each coordinates and doing the backtrack. In score mode, only two rows are
+	 * kept and the alignment stops at the best score. In linear memory mode, only
+	 * checkpoints are kept and the rows are computed again during the backtrack.
+	 * The alignment is stopped before or during the filling when its score can't
+	 * reach SCORE_MIN_DISPLAY
 	 */
 	public void completeAlignment() {
 		double precision = SGXProperties.PRECISION;
+		boolean scoreMode = SGXProperties.SCORE_MODE;
+		boolean linearMemory = SGXProperties.LINEAR_MEMORY && !scoreMode;
+		_checkpointed = linearMemory;
 
 		setExplainedMass(0);
+		_alternativeResults.clear();
 
 		int maxScore = -1000;
 		int maxPosI = 0;
 		int maxPosJ = 0;
 
-		getMatE().fillDMass(getTheoSpec().getMassList(), getExpeSpec().getMassList());
-
-		// Make the alignment in filling the matrices
-
-		for (int i = 1; i < getTheoSpec().getMassList().size(); i++) {
-			for (int j = 1; j < getExpeSpec().getMassList().size(); j++) {
-				fillMatrices(i, j, precision);
-				// keep the Max Score during matrixes filling
-				// the condition is to keep the max score in the last line (last theoretical
-				// amino acid)
-				// This is for try to keep all amino acids of the initial Theoretical sequence
-				// (but can modify alignment choice)
-				if (i == getTheoSpec().getMassList().size() - 1 && getMatScore().getData(i, j) > maxScore) {
-					maxScore = getMatScore().getData(i, j);
-					maxPosI = i;
-					maxPosJ = j;
-				}
+		double[] theoMasses = getTheoSpec().getMassArray();
+		double[] expeMasses = getExpeSpec().getMassArray();
+
+		// the best score that each row can add gives a bound of the final score. This
+		// bound is at least the score of one row, so it is only computed when the
+		// minimal score is above
+		int minScore = SGXProperties.SCORE_MIN_DISPLAY;
+		int lastRow = theoMasses.length - 1;
+		boolean pruning = lastRow > 0 && expeMasses.length > 1
+				&& minScore > Math.min(_scoreNonAlign, _maxStepScore);
+		if (pruning) {
+			int bound = computeScoreBounds(theoMasses, expeMasses, precision, minScore);
+			if (bound < minScore) {
+				pruneAlignment(bound);
+				return;
+			}
+		}
+
+		// the workspace is not used in score mode, there is no backtrack, and only
+		// stores a few rows at a time in linear memory mode
+		boolean storeRows = !scoreMode && !linearMemory;
+		if (storeRows)
+			getWorkspace().reset(theoMasses.length, expeMasses.length);
+		else if (linearMemory) {
+			// no row of the previous alignment must be taken from the workspace
+			getWorkspace().reset(theoMasses.length, expeMasses.length, 0, -1);
+			_checkpoints.reset(theoMasses.length, expeMasses.length);
+		}
+		AlignmentRow row = getAlignmentRow();
+		row.reset(expeMasses.length, getExpeSpec().getPeakTypes(), _scoreTable);
+		int[] rowScores = row.getRowScores();
+
+		// Make the alignment in filling the matrices row by row
+
+		for (int i = 1; i < theoMasses.length; i++) {
+			// the row i-1 is complete, we keep it with its running maximum for
+			// re-alignments and the last rows of chains and alignments of each column
+			if (storeRows) {
+				row.setPreviousRow(getWorkspace(), i - 1);
+			} else if (i == 1) {
+				row.setFirstRow();
+			} else {
+				row.setActualRowAsPrevious(i - 1);
+				if (linearMemory && (i - 1) % _checkpoints.getInterval() == 0)
+					_checkpoints.save((i - 1) / _checkpoints.getInterval(), row);
+			}
 
+			computeRow(row, i, precision);
+			if (storeRows)
+				row.storeRow(getWorkspace(), i, 1, expeMasses.length - 1);
+
+			// the alignment is stopped when the best score of the row with the best
+			// scores of the next rows can't reach the minimal score
+			if (pruning && i < lastRow && _maxSuffixBounds[i + 1] < minScore) {
+				int bound = getScoreBound(rowScores, expeMasses.length, i);
+				if (bound < minScore) {
+					pruneAlignment(bound);
+					return;
+				}
 			}
 
 		}
 
+		// keep the Max Score after matrixes filling
+		// the condition is to keep the max score in the last line (last theoretical
+		// amino acid)
+		// This is for try to keep all amino acids of the initial Theoretical sequence
+		// (but can modify alignment choice)
+		// the last row is still in the row buffers
+		int lastI = theoMasses.length - 1;
+		if (lastI > 0) {
+			for (int j = 1; j < expeMasses.length; j++) {
+				if (rowScores[j] > maxScore) {
+					maxScore = rowScores[j];
+					maxPosI = lastI;
+					maxPosJ = j;
+				}
+			}
+		}
+
 		setMaxScore(maxScore);
 
-		if (maxScore >= SGXProperties.SCORE_MIN_DISPLAY) {
+		if (maxScore >= SGXProperties.SCORE_MIN_DISPLAY && scoreMode) {
+			// triage of PSMs : only the score and the initial shared peaks are given
+			setTrueDeltaMass(getExpeSpec().getMainMass() - getTheoSpec().getMainMass());
+			HitModified sequenceWithFixedModif = HitModified.fromSequence(getTheoSpec().getPeptideSequence());
+			setNbPeakInitial(
+					numberSharedPeaks(sequenceWithFixedModif, getExpeSpec().getPeakMassArray(), precision));
+			makeFinalResult();
+		} else if (maxScore >= SGXProperties.SCORE_MIN_DISPLAY) {
 			// for debug
 			if (SGXProperties.DEBUG_MODE) {
-				System.out.println("Best Score = " + getMatScore().getData(maxPosI, maxPosJ) + " - at i = " + maxPosI
-						+ " j = " + maxPosJ);
+				System.out.println("Best Score = " + getWorkspaceWithRow(maxPosI).getScore(maxPosI, maxPosJ)
+						+ " - at i = " + maxPosI + " j = " + maxPosJ);
 				showMatrices();
 			}
 
@@ -221,32 +336,324 @@ public class SpectralAlignment {
 			// the proposed peptide
 			setTrueDeltaMass(getExpeSpec().getMainMass() - getTheoSpec().getMainMass());
 
-			backTrack(maxPosI, maxPosJ, precision);
+			HitModified sequenceWithFixedModif = HitModified.fromSequence(getTheoSpec().getPeptideSequence());
+			setNbPeakInitial(numberSharedPeaks(sequenceWithFixedModif, getExpeSpec().getPeakMassArray(), precision));
+
+			// the next best alignments are backtracked in the same matrices. They are
+			// made before the best one, so that the attributes describe the best one
+			if (SGXProperties.TOP_K > 1) {
+				int[] columns = getAlternativeColumns(lastI, maxPosJ, SGXProperties.TOP_K - 1);
+				for (int rank = 0; rank < columns.length; rank++) {
+					setMaxScore(getWorkspaceWithRow(lastI).getScore(lastI, columns[rank]));
+					makeAlignmentResult(lastI, columns[rank], precision);
+					_alternativeResults.add(getFinalResult() + ";" + (rank + 2));
+				}
+				setMaxScore(maxScore);
+				makeAlignmentResult(maxPosI, maxPosJ, precision);
+				setFinalResult(getFinalResult() + ";1");
+			} else {
+				makeAlignmentResult(maxPosI, maxPosJ, precision);
+			}
+		}
+
+	}
 
-			ArrayList<Double> expeMassList = new ArrayList<>(getExpeSpec().getPeakList().keySet());
+	/**
+	 * Backtrack an alignment from a case of the last row, and make the
+	 * post-processing of its hit modified until the output of the alignment
+	 * 
+	 * @param row       : the row indices of the case
+	 * @param column    : the column indices of the case
+	 * @param precision : the precision of measures
+	 */
+	private void makeAlignmentResult(int row, int column, double precision) {
+		setExplainedMass(0);
+		backTrack(row, column, precision);
+
+		double[] expeMassList = getExpeSpec().getPeakMassArray();
+
+		double offset = evaluate(getHitModifiedSeq(), expeMassList, precision, getExpeSpec().getMainMass(),
+				getTheoSpec().getMainMass());
+
+		setTotDeltaMass(offset);
+
+		// one pass over the peaks of the best hit modified gives the final shared
+		// peaks, the explained intensity and the amino acids having their b or y peak
+		// in the spectrum
+		_peakEvaluator.annotate(getModifiedAfterBestScore(), expeMassList, getExpeSpec().getPeakIntensityArray(),
+				precision);
+
+		// remove brackets for amino acids having their correspondent peak realigned
+		setOtherModified(removeBracketsForAlignedAA(getModifiedAfterBestScore()));
+		// set the number of final shared peak after all treatments
+		setNbReajustedPeak(_peakEvaluator.getNbSharedPeaks());
+		// the confidence rate is the rate of intensity explained on total intensity of
+		// experimental peaks
+		setConfidenceRate(_peakEvaluator.getExplainedIntensity() / getExpeSpec().getTotalIntensity());
+		// make the output of the actual alignment to store in the process thread of to
+		// directly write on the output csv
+		makeFinalResult();
+	}
 
-			double offset = evaluate(getHitModifiedSeq(), expeMassList, precision, getExpeSpec().getMainMass(),
-					getTheoSpec().getMainMass());
+	/**
+	 * Compute a row of the alignment in the buffers of the alignment row, from
+	 * the previous row set in these buffers
+	 * 
+	 * @param row       : the buffers of the alignment row
+	 * @param i         : the row to compute
+	 * @param precision : Precision of measures
+	 */
+	private void computeRow(AlignmentRow row, int i, double precision) {
+		double[] theoMasses = getTheoSpec().getMassArray();
+		double[] expeMasses = getExpeSpec().getMassArray();
+		double maxShift = SGXProperties.MAX_SHIFT_MASS;
+		int[] kValues = row.getKValues();
+
+		// in banded mode, the alignment is searched only in columns where the mass
+		// shift is in the band. Other cases can only continue a non alignment
+		int firstJ = 1;
+		int lastJ = expeMasses.length - 1;
+		if (maxShift > 0) {
+			int[] prevScores = row.getPrevScores();
+			int[] rowScores = row.getRowScores();
+			int[] rowOrigins = row.getRowOrigins();
+			int[] rowAligns = row.getRowAligns();
+			firstJ = Math.max(1, getFirstColumnInBand(theoMasses[i], expeMasses, maxShift));
+			lastJ = getLastColumnInBand(theoMasses[i], expeMasses, maxShift);
+			for (int j = 1; j < expeMasses.length; j++) {
+				if (j < firstJ || j > lastJ) {
+					rowScores[j] = prevScores[j] + _scoreNonAlign;
+					rowOrigins[j] = j;
+					rowAligns[j] = MatrixOrigin.NON_ALIGN;
+				}
+			}
+		}
 
-			setTotDeltaMass(offset);
-			
-			String sequenceWithFixedModif = getTheoSpec().getPeptideSequence();			
-			setNbPeakInitial(numberSharedPeaks(sequenceWithFixedModif, expeMassList, precision));
-
-			// remove brackets for amino acids having their correspondent peak realigned
-			setModifiedAfterBestScore(getModifiedAfterBestScore());
-			setOtherModified(removeBracketsForAlignedAA(getModifiedAfterBestScore(), expeMassList, precision));
-			// set the number of final shared peak after all treatments
-			setNbReajustedPeak(numberSharedPeaks(getModifiedAfterBestScore(), expeMassList, precision));
-			// calculate a confidence rate that take the number of shared peaks and divide
-			// by theoretical numbers of peaks (b and y)
-			setConfidenceRate(
-					explainedIntensityRate(getModifiedAfterBestScore(), getExpeSpec().getPeakList(), precision));
-			// make the output of the actual alignment to store in the process thread of to
-			// directly write on the output csv
-			makeFinalResult();
+		for (int j = firstJ; j <= lastJ; j++) {
+			kValues[j] = getkValue(i, j, precision);
 		}
+		boolean lastAminoAcid = i == getTheoSpec().getPeptideSequence().length();
+		_rowKernel.fillRow(row, theoMasses, expeMasses, i, lastAminoAcid, firstJ, lastJ, _scoreNonAlign, precision);
+	}
 
+	/**
+	 * Give the workspace where a row of the alignment can be read. In linear
+	 * memory mode, the rows from the checkpoint before this row to the next
+	 * checkpoint are computed again if they are not stored
+	 * 
+	 * @param row : the row to read
+	 * @return the workspace
+	 */
+	private AlignmentWorkspace getWorkspaceWithRow(int row) {
+		if (_checkpointed && !getWorkspace().containsRow(row)) {
+			int nbRow = getTheoSpec().getMassArray().length;
+			int nbColumn = getExpeSpec().getMassArray().length;
+			int interval = _checkpoints.getInterval();
+			int checkpoint = row == 0 ? 0 : (row - 1) / interval;
+			int firstRow = checkpoint * interval;
+			int lastRow = Math.min(nbRow - 1, firstRow + interval);
+
+			getWorkspace().reset(nbRow, nbColumn, firstRow, lastRow);
+			AlignmentRow alignmentRow = getAlignmentRow();
+			if (checkpoint > 0)
+				_checkpoints.restore(checkpoint, alignmentRow, getWorkspace());
+			for (int i = firstRow + 1; i <= lastRow; i++) {
+				alignmentRow.setPreviousRow(getWorkspace(), i - 1);
+				computeRow(alignmentRow, i, SGXProperties.PRECISION);
+				alignmentRow.storeRow(getWorkspace(), i, 1, nbColumn - 1);
+			}
+		}
+		return getWorkspace();
+	}
+
+	/**
+	 * Give the columns of the last row where the next best alignments end.
+	 * Columns are taken by decreasing score (the first one if equal), and only if
+	 * the score reaches SCORE_MIN_DISPLAY. An alignment is kept only if the case
+	 * it comes from is on none of the paths already kept (the best one first) :
+	 * the origin of the last case, or for a chain of non alignment at the end, the
+	 * case where the chain starts. So it doesn't only differ from them on the last
+	 * amino acids
+	 * 
+	 * @param row           : the last row
+	 * @param bestColumn    : the column of the best alignment
+	 * @param nbAlternative : the maximal number of columns
+	 * @return the columns, from the best score
+	 */
+	private int[] getAlternativeColumns(int row, int bestColumn, int nbAlternative) {
+		int nbColumn = getExpeSpec().getMassArray().length;
+
+		// the case each column of the last row comes from. The chains of non
+		// alignment are followed for all columns at once, row by row, so that rows
+		// are computed again only once in linear memory mode
+		int[] fromRows = new int[nbColumn];
+		int[] fromColumns = new int[nbColumn];
+		boolean[] inChain = new boolean[nbColumn];
+		int nbInChain = 0;
+		for (int j = 1; j < nbColumn; j++) {
+			fromColumns[j] = j;
+			if (getWorkspaceWithRow(row).getAlign(row, j) == MatrixOrigin.NON_ALIGN) {
+				inChain[j] = true;
+				nbInChain++;
+			} else {
+				fromRows[j] = row - 1;
+				fromColumns[j] = getWorkspaceWithRow(row).getOrigin(row, j);
+			}
+		}
+		for (int i = row - 1; i > 0 && nbInChain > 0; i--) {
+			for (int j = 1; j < nbColumn; j++) {
+				if (inChain[j] && getWorkspaceWithRow(i).getAlign(i, j) != MatrixOrigin.NON_ALIGN) {
+					inChain[j] = false;
+					nbInChain--;
+					fromRows[j] = i;
+				}
+			}
+		}
+
+		// column of each row for the paths kept
+		int[][] paths = new int[nbAlternative + 1][];
+		paths[0] = getPathColumns(row, bestColumn);
+		int[] columns = new int[nbAlternative];
+		int nbFound = 0;
+
+		while (nbFound < nbAlternative) {
+			int column = -1;
+			int bestScore = SGXProperties.SCORE_MIN_DISPLAY;
+			for (int j = 1; j < nbColumn; j++) {
+				int score = getWorkspaceWithRow(row).getScore(row, j);
+				if ((score > bestScore || (column == -1 && score == bestScore))
+						&& !isOnPaths(paths, nbFound + 1, fromRows[j], fromColumns[j])) {
+					bestScore = score;
+					column = j;
+				}
+			}
+			if (column == -1)
+				break;
+			columns[nbFound] = column;
+			nbFound++;
+			paths[nbFound] = getPathColumns(row, column);
+		}
+		return Arrays.copyOf(columns, nbFound);
+	}
+
+	/**
+	 * Follow the origins of a case to the row 0
+	 * 
+	 * @param row    : the row of the case
+	 * @param column : the column of the case
+	 * @return the column of the path for each row until the row of the case
+	 */
+	private int[] getPathColumns(int row, int column) {
+		int[] path = new int[row + 1];
+		path[row] = column;
+		for (int i = row; i > 0; i--)
+			path[i - 1] = getWorkspaceWithRow(i).getOrigin(i, path[i]);
+		return path;
+	}
+
+	/**
+	 * Check if a case is on one of the paths
+	 * 
+	 * @param paths   : the column of each row for each path
+	 * @param nbPaths : the number of paths to check
+	 * @param row     : the row of the case
+	 * @param column  : the column of the case
+	 * @return true if a path goes through the case
+	 */
+	private static boolean isOnPaths(int[][] paths, int nbPaths, int row, int column) {
+		for (int p = 0; p < nbPaths; p++) {
+			if (paths[p][row] == column)
+				return true;
+		}
+		return false;
+	}
+
+	/**
+	 * Compute the bounds of the best score reachable on the last row from each
+	 * row. A row adds at most the best score of the score table, and only the non
+	 * alignment score when the mass of its amino acid is found between no couple
+	 * of experimental peaks (native or symmetric). As the column 0 keeps a null
+	 * score, the alignment can also restart from 0 at any row. The masses are not
+	 * checked anymore when the rows already found can reach the minimal score
+	 * 
+	 * @param theoMasses : The theoretical masses (rows)
+	 * @param expeMasses : The sorted experimental masses (columns)
+	 * @param precision  : Precision of measures
+	 * @param minScore   : The minimal score of alignments
+	 * @return the best score reachable on the last row
+	 */
+	private int computeScoreBounds(double[] theoMasses, double[] expeMasses, double precision, int minScore) {
+		int lastRow = theoMasses.length - 1;
+		if (_suffixBounds.length < lastRow + 2) {
+			_suffixBounds = new int[lastRow + 2];
+			_maxSuffixBounds = new int[lastRow + 2];
+		}
+		_suffixBounds[lastRow + 1] = 0;
+		_maxSuffixBounds[lastRow + 1] = Integer.MIN_VALUE;
+		int nbFoundRows = 0;
+		for (int i = lastRow; i > 0; i--) {
+			boolean found = nbFoundRows * _maxStepScore + (lastRow - nbFoundRows) * _scoreNonAlign >= minScore
+					|| hasAminoAcidPair(theoMasses[i] - theoMasses[i - 1], expeMasses, precision);
+			if (found)
+				nbFoundRows++;
+			int rowScore = found ? _maxStepScore : _scoreNonAlign;
+			_suffixBounds[i] = _suffixBounds[i + 1] + rowScore;
+			_maxSuffixBounds[i] = Math.max(_maxSuffixBounds[i + 1], _suffixBounds[i]);
+		}
+		return _maxSuffixBounds[1];
+	}
+
+	/**
+	 * Give the best score reachable on the last row from the scores of a computed
+	 * row (see computeScoreBounds)
+	 * 
+	 * @param rowScores : The scores of the row
+	 * @param nbColumn  : The number of columns
+	 * @param row       : The row, before the last one
+	 * @return the best score reachable on the last row
+	 */
+	private int getScoreBound(int[] rowScores, int nbColumn, int row) {
+		int rowMaxScore = rowScores[1];
+		for (int j = 2; j < nbColumn; j++)
+			rowMaxScore = Math.max(rowMaxScore, rowScores[j]);
+		return Math.max(rowMaxScore + _suffixBounds[row + 1], _maxSuffixBounds[row + 1]);
+	}
+
+	/**
+	 * Check if the mass of an amino acid is the difference of two experimental
+	 * masses, i.e. if getkValue can find a k value for at least one column. The
+	 * masses are sorted, so the couples are browsed with two indices (with a small
+	 * margin to not depend on rounding)
+	 * 
+	 * @param aaMass     : The mass of the amino acid
+	 * @param expeMasses : The sorted experimental masses
+	 * @param precision  : Precision of measures
+	 * @return true if a couple of experimental peaks can give the amino acid
+	 */
+	private static boolean hasAminoAcidPair(double aaMass, double[] expeMasses, double precision) {
+		double minMass = aaMass - precision - 1e-9;
+		double maxMass = aaMass + precision + 1e-9;
+		int k = 0;
+		for (int j = 1; j < expeMasses.length; j++) {
+			// the biggest difference under the maximal mass is the only one to check
+			while (k < j && expeMasses[j] - expeMasses[k] >= maxMass)
+				k++;
+			double expeMass = expeMasses[j] - expeMasses[k];
+			if (expeMass > minMass && expeMass < maxMass)
+				return true;
+		}
+		return false;
+	}
+
+	/**
+	 * Stop the alignment because its score can't reach SCORE_MIN_DISPLAY, the
+	 * score is set to its bound so that it is not written
+	 * 
+	 * @param bound : The best score reachable, under SCORE_MIN_DISPLAY
+	 */
+	private void pruneAlignment(int bound) {
+		setMaxScore(bound);
+		_nbPrunedAlignments++;
 	}
 
 	/**
@@ -259,8 +666,9 @@ public class SpectralAlignment {
 	 * @param precision : the precision of measures
 	 */
 	public void backTrack(int row, int column, double precision) {
-		String pepModified = "";
 		String theoSequence = getTheoSpec().getPeptideSequence();
+		// all amino acids are not found until the backtrack pass on them
+		HitModified pepModified = new HitModified(theoSequence);
 		int actualI = row;
 		int prevI;
 		int actualJ = column;
@@ -270,61 +678,43 @@ public class SpectralAlignment {
 		int modifCount = 0;
 		double totExplainMass = 0.0;
 
-		// System.out.println(theoSequence);
-		// System.out.println("actualI is : " + actualI + " and actualJ is : " +
-		// actualJ);
-
 		while (actualI > 0) {
-			// System.out.println(actualI);
 			// define the actual mass delta to the actual i and j
-			String tempPepSeq = "";
-			String tempAA = "";
-			String aminoAcid = "";
-			actualDelMass = getMatE().getData(actualI, actualJ);
+			actualDelMass = getDeltaMass(actualI, actualJ);
 			prevI = actualI - 1;
-			prevJ = getMatOrigin().getDataOrigin(actualI, actualJ);
-			prevDelMass = getMatE().getData(prevI, prevJ);
+			prevJ = getWorkspaceWithRow(actualI).getOrigin(actualI, actualJ);
+			prevDelMass = getDeltaMass(prevI, prevJ);
 
 			// We checking first if last Amino acid are not aligned
 
-			if (getMatOrigin().getDataAlignType(actualI, actualJ).equals("NA")) {
-				// System.out.println("I'm NON ALIGN");
-				tempPepSeq = "[" + theoSequence.charAt(actualI - 1) + "]";
-
-				while (getMatOrigin().getDataAlignType(prevI, prevJ).equals("NA") && prevI > 0) {
-					tempPepSeq = "[" + theoSequence.charAt(prevI - 1) + "]" + tempPepSeq;
-
+			if (getWorkspaceWithRow(actualI).getAlign(actualI, actualJ) == MatrixOrigin.NON_ALIGN) {
+				// the amino acid and the previous non aligned ones stay not found
+				while (getWorkspaceWithRow(prevI).getAlign(prevI, prevJ) == MatrixOrigin.NON_ALIGN && prevI > 0) {
 					prevI--;
 				}
 				// modifCount++;
 				actualI = prevI;
 				actualJ = prevJ;
 
-				pepModified = tempPepSeq + pepModified;
-
 				// if not, we are in the case where there is an alignment or a realignment
-				// if there is Align or a re-align, put the letter of Amino Acid and check what
+				// if there is Align or a re-align, the amino acid is found and we check what
 				// we get before to see if we have a mass change
 			} else {
-				// we put the actual amino acid because he is found, and in function of
-				// alignment type, we can have a mass offset
-				tempPepSeq = String.valueOf(theoSequence.charAt(actualI - 1));
-				aminoAcid = tempPepSeq;
+				// the actual amino acid is found, and in function of alignment type, we can
+				// have a mass offset just before it
+				pepModified.setFound(actualI - 1, true);
 
 				// we check if there is a deletion before the founded aminoAcid
-				if (prevI > 0 && getMatOrigin().getDataAlignType(prevI, prevJ).equals("NA")) {
+				if (prevI > 0 && getWorkspaceWithRow(prevI).getAlign(prevI, prevJ) == MatrixOrigin.NON_ALIGN) {
 
 					// modifCount++;
 
 					// we continue to check if this is a deletion bloc to keep the mass difference
 					// due to the deletion of the block
-					while (prevI > 0 && getMatOrigin().getDataAlignType(prevI, prevJ).equals("NA")) {
-
-						tempPepSeq = "[" + theoSequence.charAt(prevI - 1) + "]" + tempPepSeq;
-						tempAA = theoSequence.charAt(prevI - 1) + tempAA;
+					while (prevI > 0 && getWorkspaceWithRow(prevI).getAlign(prevI, prevJ) == MatrixOrigin.NON_ALIGN) {
 
 						prevI--;
-						prevDelMass = getMatE().getData(prevI, prevJ);
+						prevDelMass = getDeltaMass(prevI, prevJ);
 						if (prevI == 0) {
 							prevDelMass = 0.0;
 						}
@@ -334,36 +724,28 @@ public class SpectralAlignment {
 					// check the mass delta to avoid showing a null mass delta
 					if (Math.abs(actualDelMass - prevDelMass) > precision) {
 
-						tempPepSeq = tempPepSeq.substring(0, tempPepSeq.length() - 1);
-
-						tempPepSeq += "["
-								+ SGXProperties.DECIMALFORM.format(Double.valueOf(actualDelMass - prevDelMass)) + "]"
-								+ aminoAcid;
+						pepModified.setShift(actualI - 1, actualDelMass - prevDelMass);
 						totExplainMass += (actualDelMass - prevDelMass);
 						modifCount++;
 
 					}
 
 					// if there this is just a re-align, we need to indicate the mass offset
-				} else if (getMatOrigin().getDataAlignType(actualI, actualJ).equals("RA")) {
+				} else if (getWorkspaceWithRow(actualI).getAlign(actualI, actualJ) == MatrixOrigin.RE_ALIGN) {
 
-					tempPepSeq = "[" + SGXProperties.DECIMALFORM.format(Double.valueOf(actualDelMass - prevDelMass))
-							+ "]" + tempPepSeq;
+					pepModified.setShift(actualI - 1, actualDelMass - prevDelMass);
 					modifCount++;
 					totExplainMass += (actualDelMass - prevDelMass);
 
 					// the fact when you align the first amino acid, but there is a leak of Amino
 					// acid in OMS solution before
-				} else if (actualI == 1 && getMatOrigin().getDataAlignType(actualI, actualJ).equals("AL")
+				} else if (actualI == 1 && getWorkspaceWithRow(actualI).getAlign(actualI, actualJ) == MatrixOrigin.ALIGN
 						&& (Math.abs(actualDelMass) > precision)) {
-					tempPepSeq = "[" + SGXProperties.DECIMALFORM.format(actualDelMass) + "]" + tempPepSeq;
+					pepModified.setShift(0, actualDelMass);
 					totExplainMass += actualDelMass;
 					modifCount++;
 				}
 
-				pepModified = tempPepSeq + pepModified;
-				// System.out.println(pepModified);
-
 				actualI = prevI;
 				actualJ = prevJ;
 
@@ -371,132 +753,18 @@ public class SpectralAlignment {
 
 		}
 
-		setHitModifiedSeq(
-				pepModified + "_[" + SGXProperties.DECIMALFORM.format(getTrueDeltaMass() - totExplainMass) + "]");
+		pepModified.setNotAlignedMass(getTrueDeltaMass() - totExplainMass);
+		setHitModifiedSeq(pepModified);
 
 		setModificationNumber(modifCount);
 
 	}
 
-	/**
-	 * This method do the alignment of the 2 Spectra and fill matrices at actual
-	 * coordinates i(row - theoretical) and j(column - experimental)
-	 * 
-	 * @param theoIndiceI : The actual theoretical peak indices
-	 * @param expeIndiceJ : The actual experimental peak indices
-	 * @param precision   : The Precision or measures
-	 *
-	 */
-	public void fillMatrices(int theoIndiceI, int expeIndiceJ, double precision) {
-		// in first time, we set score corresponding to type of peak (initial/mirror or
-		// both)
-		// we set initial score to peak mirror or initial
-		byte expePeakType = getExpeSpec().getPeakListSymmetrized().get(getExpeSpec().getMassList().get(expeIndiceJ));
-
-		int alignScoreToAdd = getScoreToApply(_alignNative);
-		int reAlignScoreToAdd = getScoreToApply(_reAlignNative);
-		int reAlignScoreNOToAdd = getScoreToApply(_reAlignNativeNoOffset);
-
-		switch (expePeakType) {
-
-		case 0:
-			// this is a native peak
-			alignScoreToAdd = getScoreToApply(_alignNative);
-			reAlignScoreToAdd = getScoreToApply(_reAlignNative);
-			reAlignScoreNOToAdd = getScoreToApply(_reAlignNativeNoOffset);
-			if (SGXProperties.BETTER_END_RA && theoIndiceI == getTheoSpec().getPeptideSequence().length()) {
-				reAlignScoreToAdd = getScoreToApply(_nonAlign) + getScoreToApply(_alignNative);
-			}
-			break;
-		case 1:
-			// this is a symmetric peak
-			alignScoreToAdd = getScoreToApply(_alignSym);
-			reAlignScoreToAdd = getScoreToApply(_reAlignSym);
-			reAlignScoreNOToAdd = getScoreToApply(_reAlignSymNoOffset);
-			if (SGXProperties.BETTER_END_RA && theoIndiceI == getTheoSpec().getPeptideSequence().length()) {
-				reAlignScoreToAdd = getScoreToApply(_nonAlign) + getScoreToApply(_alignSym);
-			}
-			break;
-		case 2:
-			// this is a native peak with a symmetric corresponding
-			alignScoreToAdd = getScoreToApply(_alignBoth);
-			reAlignScoreToAdd = getScoreToApply(_reAlignBoth);
-			reAlignScoreNOToAdd = getScoreToApply(_reAlignBothNoOffset);
-			if (SGXProperties.BETTER_END_RA && theoIndiceI == getTheoSpec().getPeptideSequence().length()) {
-				reAlignScoreToAdd = getScoreToApply(_nonAlign) + getScoreToApply(_alignBoth);
-			}
-			break;
-		default:
-			break;
-
-		}
-
-		int k = getkValue(theoIndiceI, expeIndiceJ, precision);
-		if (k == -1) {
-			setMatricesData(theoIndiceI, expeIndiceJ,
-					getMatScore().getData(theoIndiceI - 1, expeIndiceJ) + (getScoreToApply(_nonAlign)), expeIndiceJ, 0);
-		} else {
-			int scoreAlignK = getMatScore().getData(theoIndiceI - 1, k) + alignScoreToAdd;
-			// if it come from non align, we must verify that there is no offset from
-			// previous align
-			if (getMatOrigin().getDataAlign(theoIndiceI - 1, k) == 0) {
-				int l;
-				for (l = theoIndiceI - 1; l > 0; l--) {
-					if (getMatOrigin().getDataOrigin(l, k) != k)
-						break;
-
-				}
-				if (Math.abs(getMatE().getData(l, k) - getMatE().getData(theoIndiceI, expeIndiceJ)) > precision)
-					scoreAlignK = getMatScore().getData(theoIndiceI - 1, k) + reAlignScoreToAdd;
-
-			}
-
-			// int[0] = the j value m and int[1] = the score value
-			int[] reAlignBestScore = getBestRealignScore(theoIndiceI, k, expeIndiceJ, reAlignScoreToAdd,
-					reAlignScoreNOToAdd, precision);
-
-			// For debug to see value for any match
-			// System.out.println("score k = " + scoreAlignK + " - score m = " +
-			// reAlignBestScore[1] + " - origin m = "
-			// + reAlignBestScore[0]);
-
-			if (scoreAlignK >= reAlignBestScore[1]) {
-				setMatricesData(theoIndiceI, expeIndiceJ, scoreAlignK, k, 2);
-
-			} else {
-				setMatricesData(theoIndiceI, expeIndiceJ, reAlignBestScore[1], reAlignBestScore[0],
-						reAlignBestScore[2]);
-			}
-
-		}
-	}
-
-	/**
-	 * This function is use to check if there is a founded AA between experimental
-	 * peaks at indices j and indices K Theoretically, the AA is between peaks of
-	 * indices i and i-i
-	 * 
-	 * @param theoIndiceI   the i value (row) of the theoretical peak i
-	 * @param expeIndiceJ   the j value (column) of the experimental peak j
-	 * @param expePtentialK the potential k value (column) where mass[j] - mass[k] =
-	 *                      mass[i] - mass[i-1]
-	 * @param precision     : Precisions of measures
-	 * 
-	 * @return true if mass[j] - mass[k] = mass[i] - mass[i-1] so if AA is found
-	 */
-	public boolean aaFound(int theoIndicesI, int expeIndicesJ, int expeIndicesK, double precision) {
-		double theoMass = (getTheoSpec().getMassList().get(theoIndicesI)
-				- getTheoSpec().getMassList().get(theoIndicesI - 1));
-
-		double expeMass = (getExpeSpec().getMassList().get(expeIndicesJ)
-				- getExpeSpec().getMassList().get(expeIndicesK));
-
-		return (Math.abs(theoMass - expeMass) < precision);
-	}
-
 	/**
 	 * Method to found the value of k that give the mass of an amino acid between
-	 * experimental masses j and k
+	 * experimental masses j and k. As experimental masses are sorted, the first
+	 * candidate column is found by binary search, then only the few columns
+	 * around the amino acid mass are checked
 	 * 
 	 * @param theoIndicesI : the row where we actually are
 	 * @param expeIndicesJ : the column where we actually are
@@ -504,85 +772,98 @@ public class SpectralAlignment {
 	 * @return a int value of k
 	 */
 	public int getkValue(int theoIndicesI, int expeIndicesJ, double precision) {
-		double theoMassI = getTheoSpec().getMassList().get(theoIndicesI);
-		double theoMassPrev = getTheoSpec().getMassList().get(theoIndicesI - 1);
-		double expeMassJ = getExpeSpec().getMassList().get(expeIndicesJ);
-		// We check all column from j to 0
-		for (int k = expeIndicesJ; k >= 0; k--) {
+		double[] expeMasses = getExpeSpec().getMassArray();
+		double[] theoMasses = getTheoSpec().getMassArray();
+		double theoMass = theoMasses[theoIndicesI] - theoMasses[theoIndicesI - 1];
+		double expeMassJ = expeMasses[expeIndicesJ];
+
+		// columns with expeMassJ - mass[k] under this value can't give the amino acid
+		// (a small margin is kept to not depend on rounding)
+		double minExpeMass = theoMass - precision - 1e-9;
+
+		// binary search of the highest k where expeMassJ - mass[k] > minExpeMass
+		int low = 0;
+		int high = expeIndicesJ;
+		int start = -1;
+		while (low <= high) {
+			int middle = (low + high) >>> 1;
+			if (expeMassJ - expeMasses[middle] > minExpeMass) {
+				start = middle;
+				low = middle + 1;
+			} else {
+				high = middle - 1;
+			}
+		}
+
+		// We check columns from the candidate to 0
+		for (int k = start; k >= 0; k--) {
+			double expeMass = expeMassJ - expeMasses[k];
 			// if we found that j-k give an amino acid, we keep k value
-			if (aaFound(theoIndicesI, expeIndicesJ, k, precision))
+			if (Math.abs(theoMass - expeMass) < precision)
 				return k;
 			// if we pass the mass of the theoretical amino acid, we stop to not over
 			// calculate
-			else if ((expeMassJ - getExpeSpec().getMassList().get(k)) > (theoMassI - theoMassPrev + precision))
+			else if (expeMass > (theoMass + precision))
 				return -1;
 		}
 		return -1; // a value of -1 to show that there is no k value
 	}
 
 	/**
-	 * Method to get a realigned j value of where come from the realignment and get
-	 * the associated realigned score
-	 * 
-	 * @param theoIndicesI    : The row where we are actually
-	 * @param expeIndicesK    : The founded k indices
-	 * @param expeIndicesJ    : The column where we are actually
-	 * @param reAlignScore    : Score to add if it is needed to add offset to
-	 *                        realign
-	 * @param alignScoreToAdd : Score to add if there is an alignment with peak k
-	 * @param precision       : Precision of measures
-	 * @return an int[] where int[0] is the origin column (m) where come from the
-	 *         re-alignment and int[1] is the calculated re-aligned score and int[3]
-	 *         is the alignment type code
+	 * Give the first column where the mass shift with the theoretical peak is not
+	 * under -maxShift
 	 * 
+	 * @param theoMass   : The mass of the theoretical peak
+	 * @param expeMasses : The sorted experimental masses
+	 * @param maxShift   : The maximal mass shift explored
+	 * @return the first column in the band (length of the array if none)
 	 */
-	public int[] getBestRealignScore(int theoIndicesI, int expeIndicesK, int expeIndicesJ, int reAlignScore,
-			int alignScoreToAdd, double precision) {
-		int bestScore = -10000;
-		int origin = -1;
-		int[] result = new int[3];
-
-		// m is a j value between 0 and k where a realign can be do if we accept mass
-		// offset
-		for (int m = expeIndicesK; m > -1; m--) {
-			// the >= here is for keep the highest S value if there is multiple S with the
-			// same best score
-			if (getMatScore().getData(theoIndicesI - 1, m) > bestScore) {
-				bestScore = getMatScore().getData(theoIndicesI - 1, m);
-				origin = m;
-			}
-		}
-
-		result[0] = origin;
-		result[1] = bestScore + reAlignScore;
-		result[2] = 1;
-
-		if (origin == -1)
-			return result;
-
-		// We check for the last alignment if we have chain of Non Alignment to compare
-		// the last mass offset found
-		int lastAlign = theoIndicesI - 1;
-		for (int l = theoIndicesI - 1; l > 0; l--) {
-			if (getMatOrigin().getDataAlign(l, origin) != 0) {
-				lastAlign = l;
-				break;
-			}
+	private static int getFirstColumnInBand(double theoMass, double[] expeMasses, double maxShift) {
+		int low = 0;
+		int high = expeMasses.length;
+		while (low < high) {
+			int middle = (low + high) >>> 1;
+			if (expeMasses[middle] - theoMass < -maxShift)
+				low = middle + 1;
+			else
+				high = middle;
 		}
+		return low;
+	}
 
-		// if the difference of mass offset between actual state and last align (or
-		// realign) is null, we consider that to an alignment
-		if ((lastAlign != (theoIndicesI - 1)) && (theoIndicesI > 1)
-				&& (Math.abs(getMatE().getData(theoIndicesI - 1, expeIndicesK)
-						- getMatE().getData(lastAlign, origin)) < precision)) {
-			result[1] = bestScore + alignScoreToAdd;
-			result[2] = 2;
+	/**
+	 * Give the last column where the mass shift with the theoretical peak is not
+	 * over maxShift
+	 * 
+	 * @param theoMass   : The mass of the theoretical peak
+	 * @param expeMasses : The sorted experimental masses
+	 * @param maxShift   : The maximal mass shift explored
+	 * @return the last column in the band (-1 if none)
+	 */
+	private static int getLastColumnInBand(double theoMass, double[] expeMasses, double maxShift) {
+		int low = 0;
+		int high = expeMasses.length;
+		while (low < high) {
+			int middle = (low + high) >>> 1;
+			if (expeMasses[middle] - theoMass > maxShift)
+				high = middle;
+			else
+				low = middle + 1;
 		}
+		return low - 1;
+	}
 
-		// we return the origin (value of m) and the associate calculated score and the
-		// type of Alignment
-		return result;
-
+	/**
+	 * Give the mass offset between the theoretical peak of a row and the
+	 * experimental peak of a column. It is computed when needed rather than stored
+	 * in a full matrix
+	 * 
+	 * @param theoIndicesI : The row (theoretical peak indices)
+	 * @param expeIndicesJ : The column (experimental peak indices)
+	 * @return the mass difference experimental - theoretical
+	 */
+	public double getDeltaMass(int theoIndicesI, int expeIndicesJ) {
+		return getExpeSpec().getMassArray()[expeIndicesJ] - getTheoSpec().getMassArray()[theoIndicesI];
 	}
 
 	/**
@@ -596,39 +877,38 @@ public class SpectralAlignment {
 	 * modification is not-aligned of after a series of unfound amino acids. Several
 	 * locations are tested
 	 * 
-	 * @param modified1            : The hit modified found after alignment
-	 * @param experimentalMassList : Mass list of the experimental spectrum
+	 * @param hitModified          : The hit modified found after alignment
+	 * @param experimentalMasses   : Sorted masses of the experimental spectrum
 	 * @param precision            : Precision of the Mass spectrometer
 	 * @param experimentalMass     : Mass of the experimental peptide giver by the
 	 *                             precursor
 	 * @param peptideMass          : Mass of the OMS given peptide
 	 * @return
 	 */
-	public double evaluate(String modified1, ArrayList<Double> experimentalMassList, double precision,
+	public double evaluate(HitModified hitModified, double[] experimentalMasses, double precision,
 			double experimentalMass, double peptideMass) {
 
-		String modified2 = modified1;
-		String unExplained = "";
+		HitModified modified1 = new HitModified(hitModified);
 		double massBetterModified;
 		int nbSharedPeaksAfterAlign;
 
 		// First, we try to explain not-aligned block of modification, and we evaluate
 		// the actual quality of alignment
-		int index = modified1.indexOf("_");
-		if (index != -1) {
-			modified1 = modified1.substring(0, index);
-			unExplained = modified2.substring(index + 1);
+		if (modified1.hasNotAlignedMass()) {
+			double unExplained = modified1.getNotAlignedMass();
+			modified1.removeNotAlignedMass();
 
 			// calculate the number of peaks without the not-aligned mass left at the end
 			// to evaluate if the unexplained mass is really not-aligned or on the last
 			// amino acids
 			massBetterModified = calculateModifiedPepMass(modified1, precision);
-			nbSharedPeaksAfterAlign = numberSharedPeaks(modified1, experimentalMassList, precision);
+			nbSharedPeaksAfterAlign = numberSharedPeaks(modified1, experimentalMasses, precision);
 
 			// calculate the number of shared peaks with the deltaM on the last aa
 
-			String modified3 = modified1.concat(unExplained);
-			int nbAlignAtEnd = numberSharedPeaks(modified3, experimentalMassList, precision);
+			HitModified modified3 = new HitModified(modified1);
+			modified3.setShift(modified3.length(), unExplained);
+			int nbAlignAtEnd = numberSharedPeaks(modified3, experimentalMasses, precision);
 
 			if (nbAlignAtEnd > nbSharedPeaksAfterAlign) {
 				nbSharedPeaksAfterAlign = nbAlignAtEnd;
@@ -639,14 +919,14 @@ public class SpectralAlignment {
 		} else {
 			// initialize the number of shared masses if there is no not-aligned mass
 			massBetterModified = calculateModifiedPepMass(modified1, precision);
-			nbSharedPeaksAfterAlign = numberSharedPeaks(modified1, experimentalMassList, precision);
+			nbSharedPeaksAfterAlign = numberSharedPeaks(modified1, experimentalMasses, precision);
 		}
 
 		setNbPeakAfterAlign(nbSharedPeaksAfterAlign);
 
 		// The not-aligned mass is now explain, or removed from modified1
 
-		String bestModified = modified1;
+		HitModified bestModified = modified1;
 
 		// Try to remove complementary mass offset 
 		// Not done if the number of peaks is increased by more than two peaks
@@ -654,7 +934,7 @@ public class SpectralAlignment {
 		// Could be modified...the information is in the preAligned column
 		
 		modified1 = eliminateComplementaryDelta(modified1, precision);
-		if (numberSharedPeaks(modified1, experimentalMassList, precision) < nbSharedPeaksAfterAlign + 2)
+		if (numberSharedPeaks(modified1, experimentalMasses, precision) < nbSharedPeaksAfterAlign + 2)
 			bestModified = modified1;
 		else
 			modified1 = bestModified;
@@ -665,7 +945,7 @@ public class SpectralAlignment {
 		// explain it
 		modified1 = eliminateNegativeOffset(modified1, precision);
 
-		if (numberSharedPeaks(modified1, experimentalMassList, precision) >= nbSharedPeaksAfterAlign)
+		if (numberSharedPeaks(modified1, experimentalMasses, precision) >= nbSharedPeaksAfterAlign)
 			bestModified = modified1;
 		else
 			modified1 = bestModified;
@@ -673,80 +953,85 @@ public class SpectralAlignment {
 		// We'll try to evaluate for each deltaM if it can be a neutral loss or not
 		// For this, we compare the number of shared peaks with and without the shift
 
-		Pattern p = Pattern.compile("-?\\d+,\\d+");
-		Matcher m = p.matcher(modified1);
-		int beginIndex = 0;
+		boolean hasShift = false;
+		for (int position = 0; position <= modified1.length(); position++) {
+			if (modified1.hasShift(position))
+				hasShift = true;
+		}
 
 		// If there is no staying offset, we just have to recalculate parameters like
 		// shared peaks, mass of the last modified
 
-		if (!m.find()) {
-			nbSharedPeaksAfterAlign = numberSharedPeaks(modified1, experimentalMassList, precision);
+		if (!hasShift) {
+			nbSharedPeaksAfterAlign = numberSharedPeaks(modified1, experimentalMasses, precision);
 			massBetterModified = calculateModifiedPepMass(modified1, precision);
 			bestModified = modified1;
 		} else {
+			// candidates differ from modified1 by one shift, their peaks are generated
+			// again only from the first changed position
+			_peakEvaluator.setBase(modified1, precision);
 			// For each deltaM
-			while (beginIndex < bestModified.length()) {
-				if (m.find(beginIndex)) {
-					beginIndex = m.start();
-					int endIndex = modified1.indexOf(']', beginIndex) + 1;
-
-					// there is an offset at beginIndex position, but where is it best if there are
-					// several unfound amino acids just before?
-
-					int bestPosition = beginIndex - 7;
-
-					while (bestPosition > 7) {
-
-						modified2 = modified1;
-
-						if ((modified2.charAt(bestPosition) == '[') && (modified2.charAt(bestPosition + 2) == ']')) {
-							String modified3 = modified1.substring(0, bestPosition + 3);
-							modified3 = modified3.concat(modified1.substring(beginIndex - 1, endIndex));
-							modified3 = modified3.concat(modified1.substring(bestPosition + 3, beginIndex - 1));
-							modified3 = modified3.concat(modified1.substring(endIndex));
-							int nbPeaksWithModif = numberSharedPeaks(modified3, experimentalMassList, precision);
-							if (nbPeaksWithModif > nbSharedPeaksAfterAlign) {
-								nbSharedPeaksAfterAlign = nbPeaksWithModif;
-								massBetterModified = calculateModifiedPepMass(modified3, precision);
-								bestModified = modified3;
-
-							}
-							bestPosition -= 3;
-						} else
-							break;
+			for (int position = 0; position <= modified1.length(); position++) {
+				if (!modified1.hasShift(position))
+					continue;
+
+				// there is an offset at this position, but where is it best if there are
+				// several unfound amino acids just before? The offset is moved after an
+				// unfound amino acid that is before the unfound amino acid (or the three
+				// found amino acids) just before the offset
+				int unfound = -1;
+				if (position >= 2 && !modified1.isFound(position - 1) && !modified1.hasShift(position - 1))
+					unfound = position - 2;
+				else if (position >= 4 && modified1.isFound(position - 1) && modified1.isFound(position - 2)
+						&& modified1.isFound(position - 3) && !modified1.hasShift(position - 1)
+						&& !modified1.hasShift(position - 2) && !modified1.hasShift(position - 3))
+					unfound = position - 4;
+
+				// the offset is not moved in the first characters of the hit modified
+				while (unfound >= 0 && modified1.getWrittenIndex(unfound) > 7 && !modified1.isFound(unfound)) {
+					int nbPeaksWithModif = _peakEvaluator.countWithMovedShift(position, unfound + 1,
+							experimentalMasses);
+					if (nbPeaksWithModif > nbSharedPeaksAfterAlign) {
+						HitModified modified3 = new HitModified(modified1);
+						modified3.moveShift(position, unfound + 1);
+						nbSharedPeaksAfterAlign = nbPeaksWithModif;
+						massBetterModified = calculateModifiedPepMass(modified3, precision);
+						bestModified = modified3;
+
 					}
-					// try in the case we remove the offset
-					modified2 = modified1.substring(0, beginIndex - 1).concat(modified1.substring(endIndex));
-					int nbPeaksWithModifNeutre = numberSharedPeaks(modified2, experimentalMassList, precision);
-
-					if (nbPeaksWithModifNeutre >= nbSharedPeaksAfterAlign) {
-						nbSharedPeaksAfterAlign = nbPeaksWithModifNeutre;
-						massBetterModified = calculateModifiedPepMass(modified2, precision);
-						bestModified = modified2;
-						modified1 = modified2;
-						m = p.matcher(modified1);
-					} else
-						beginIndex = endIndex;
-				} else
-					break;
+					// the next unfound amino acid must be just before
+					if (modified1.hasShift(unfound))
+						break;
+					unfound--;
+				}
+				// try in the case we remove the offset
+				int nbPeaksWithModifNeutre = _peakEvaluator.countWithoutShift(position, experimentalMasses);
+
+				if (nbPeaksWithModifNeutre >= nbSharedPeaksAfterAlign) {
+					HitModified modified2 = new HitModified(modified1);
+					modified2.removeShift(position);
+					nbSharedPeaksAfterAlign = nbPeaksWithModifNeutre;
+					massBetterModified = calculateModifiedPepMass(modified2, precision);
+					bestModified = modified2;
+					modified1 = modified2;
+					_peakEvaluator.setBase(modified1, precision);
+				}
 			}
 		}
 
 		double offset = getExpeSpec().getMainMass() - massBetterModified;
 
 		if (offset < -precision) {
-			bestModified = tryToCumulateOffSets(bestModified, offset, nbSharedPeaksAfterAlign, experimentalMassList,
+			bestModified = tryToCumulateOffSets(bestModified, offset, nbSharedPeaksAfterAlign, experimentalMasses,
 					precision);
-			nbSharedPeaksAfterAlign = numberSharedPeaks(bestModified, experimentalMassList, precision);
+			nbSharedPeaksAfterAlign = numberSharedPeaks(bestModified, experimentalMasses, precision);
 			massBetterModified = calculateModifiedPepMass(bestModified, precision);
 			offset = getExpeSpec().getMainMass() - massBetterModified;
 		}
 
 		if (Math.abs(offset) > precision) {
-			bestModified = bestModified + "_[";
-			bestModified = bestModified + SGXProperties.DECIMALFORM.format(offset);
-			bestModified = bestModified + "]";
+			bestModified = new HitModified(bestModified);
+			bestModified.setNotAlignedMass(offset);
 		}
 
 		setNbReajustedPeak(nbSharedPeaksAfterAlign);
@@ -760,52 +1045,14 @@ public class SpectralAlignment {
 	 * spectrum and a generated spectrum from the hitModified sequence
 	 * 
 	 * @param modified             : The sequence of the hitModified
-	 * @param experimentalMassList : The list of mass peak from experimental spetrum
+	 * @param experimentalMasses   : The sorted masses of the experimental spectrum
 	 * @param precision            : Precision of the mass spectrometer
 	 * @return the number of shared peak between hitModified generated spectrum and
 	 *         experimental spectrum
 	 */
-	public int numberSharedPeaks(String modified, ArrayList<Double> experimentalMassList, double precision) {
-
-		//TODO: should be optimized!!
-		
-		double variablePrecision = precision;
-
-		ArrayList<Double> modifiedPeaks = generatePeaks(modified, precision);
-		if (modifiedPeaks == null)
-			return 0;
-
-/*		System.out.println("Theo List : "+modified);
-		for (double e : modifiedPeaks)
-			System.out.println(e);
-		System.out.println("Expe List :");
-		for (double e : experimentalMassList)
-			System.out.println(e);
-*/
-		int nbSharedPeaks = 0;
-		double prevPeak = 0.0;
-
-		Collections.sort(experimentalMassList);
-		variablePrecision += 0.005; // value depending on the precision of the amino acids
-
-		for (Double modPeak : modifiedPeaks) {
-			
-			if (Math.abs(modPeak - prevPeak) > variablePrecision) {
-
-				for (Double expePeak : experimentalMassList) {
-					if (Math.abs(modPeak - expePeak) < variablePrecision) {
-						nbSharedPeaks += 1;
-						prevPeak = modPeak;
-						// System.out.println(modPeak + " ::::: " + expePeak);
-						break;
-					} else if (expePeak > modPeak)
-						break;
-
-				}
-			}
-		}
-
-		return nbSharedPeaks;
+	public int numberSharedPeaks(HitModified modified, double[] experimentalMasses, double precision) {
+		_peakEvaluator.setBase(modified, precision);
+		return _peakEvaluator.countBase(experimentalMasses);
 	}
 
 	/**
@@ -815,40 +1062,23 @@ public class SpectralAlignment {
 	 * @param precision : the precision of the instrument
 	 * @return
 	 */
-	public double calculateModifiedPepMass(String modified, double precision) {
+	public double calculateModifiedPepMass(HitModified modified, double precision) {
 
-		// First, we try to remove the not-aligned mass if any
+		// First we add shifts (the not-aligned mass is not taken)
 		
 		double totalMass = 0.0;		
 		
-		int index = modified.indexOf("_");
-		if (index != -1) 
-			modified = modified.substring(0, index);
-		
-
-		// Second we add shifts
-		Pattern p = Pattern.compile("-?\\d+,\\d+");
-		Matcher m = p.matcher(modified);
-		
-		while (m.find()) {		
-			int beginIndex = m.start();
-			int endIndex = modified.indexOf(']', beginIndex) + 1;
-			String mass = modified.substring(beginIndex,endIndex-1);
-			// French numeric notation
-			mass = mass.replace(",", ".");
-			double massValue = Double.valueOf(mass);
-			totalMass += massValue;	
+		for (int position = 0; position <= modified.length(); position++) {
+			if (modified.hasShift(position))
+				totalMass += modified.getShift(position);
 		}
 			
-        // Remove brackets
-			
-		modified = modified.replaceAll("\\[", "");		
-		modified = modified.replaceAll("\\]", "");
+		// Then the amino acids, found or not
 		int i = 0;
 		double massPep=0;
 		
 		while (i < modified.length()) {
-			double mass = AminoAcids.getUnitMass(String.valueOf(modified.charAt(i)));
+			double mass = AminoAcids.getUnitMass(String.valueOf(modified.getResidue(i)));
 			if (mass != -1)
 				massPep+=mass;
 			i += 1;
@@ -858,147 +1088,24 @@ public class SpectralAlignment {
 		return totalMass;
 	}
 
-	/**
-	 * Generate mass peak list to allow the comparison between hitModified spectrum
-	 * and experimental spectrum
-	 * 
-	 * @param hitModified : sequence hitModified
-	 * @param precision   : the precision of the instrument
-	 * @return a list of peak mass
-	 */
-	private static ArrayList<Double> generatePeaks(String hitModified, double precision) {
-
-		int length;
-
-		int existNotExplained = hitModified.indexOf('_');
-		if (existNotExplained == -1)
-			length = hitModified.length();
-		else
-			length = existNotExplained;
-
-		double bSum = AminoAcids.getUnitMass("NT");
-		double ySum = AminoAcids.getUnitMass("CT") + AminoAcids.getUnitMass("H+") + AminoAcids.getUnitMass("Hy");
-		ArrayList<Double> peaks = new ArrayList<>();
-
-		int debIndex = 0;
-		double valueOffset = 0.0;
-
-		for (int i = 0; i < length; i++) {
-
-			if (hitModified.charAt(i) == '[') {
-				debIndex = i;
-
-				while (hitModified.charAt(i) != ']') {
-					i++;
-					if (i >= hitModified.length()) {
-						System.out.println("Problem issue with hitModified :" + hitModified);
-						return new ArrayList<>();
-					}
-				}
-
-				// even if the amino acid is not present, we add the peak
-				if (i == debIndex + 2) {
-
-					bSum += AminoAcids.getUnitMass(hitModified.charAt(debIndex + 1));
-
-					peaks.add(bSum);
-
-				}
-
-				else {
-
-					String number = hitModified.substring(debIndex + 1, i);
-					number = number.replace(',', '.');
-					valueOffset = Double.valueOf(number);
-
-					bSum += valueOffset;
-
-					/* if (!peaks.isEmpty()) {
-						peaks.add(bSum);
-					} else {
-						peaks.add(valueOffset);
-					} */
-					
-					peaks.add(bSum);
-				}
-					
-			} else {
-
-				int lastIndex = 0;
-				// We add the 2 peaks that frame the amino acid if necessary
-				if (!peaks.isEmpty()) {
-					lastIndex = peaks.size() - 1;
-					if (Math.abs(peaks.get(lastIndex) - bSum) > precision) {
-						peaks.add(bSum);
-					}
-				} else {
-					peaks.add(bSum);
-				}
-
-				bSum = bSum + AminoAcids.getUnitMass(hitModified.charAt(i));
-				peaks.add(bSum);
-
-			}
-			// when we reach this point, modified.charAt(i) is an amino acid
-		}
-
-		int nbPeaks = peaks.size();
-		double massTot = bSum + ySum;
-
-		double y = massTot - AminoAcids.getUnitMass("H+");
-		peaks.add(y);
-		for (int i = 0; i < nbPeaks - 1; i++) {
-			y = massTot - peaks.get(i);
-			peaks.add(y);
-		}
-
-		Collections.sort(peaks);
-
-		// elimination of redundant peaks and peaks that are out of range (negative or
-		// more than total mass)
-		double prevPeak = peaks.get(0);
-		double actualPeak;
-		for (int i = 1; i < peaks.size(); i++) {
-			actualPeak = peaks.get(i);
-			if (Math.abs(actualPeak - prevPeak) < precision) {
-				peaks.remove(i);
-				i--;
-			}
-			prevPeak = actualPeak;
-		}
-
-		return (peaks);
-	}
-
 	/**
 	 * Use to delete offset when there is two opposite mass in the hit modified
 	 * example : [150.2]SDS[-150.2]KR --> SDSKR
 	 * 
-	 * @param modified1 : The hit modified sequence
+	 * @param modified  : The hit modified sequence
 	 * @param precision : The mass spectrometer precision
 	 * @return a new hit modified without complementary offset mass
 	 */
-	private String eliminateComplementaryDelta(String modified1, double precision) {
-		// System.out.println("Elimination des complementaires");
+	private HitModified eliminateComplementaryDelta(HitModified modified, double precision) {
+		HitModified modified1 = new HitModified(modified);
 
-		int index = modified1.indexOf("_");
-		if (index == -1)
-			index = modified1.length();
-
-		Pattern p = Pattern.compile("-?\\d+,\\d+");
-		Matcher m = p.matcher(modified1);
 		ArrayList<Double> offSetInModified = new ArrayList<Double>();
 		ArrayList<Double> offSetToRemove = new ArrayList<Double>();
 		double offSet;
 
-		while (m.find()) {
-			int beginIndex = m.start();
-			if (beginIndex < index) {
-
-				int endIndex = modified1.indexOf(']', beginIndex);
-				String value = modified1.substring(beginIndex, endIndex);
-				value = value.replace(',', '.');
-				offSet = Double.valueOf(value);
+		for (int position = 0; position <= modified1.length(); position++) {
+			if (modified1.hasShift(position)) {
+				offSet = modified1.getShift(position);
 				offSetInModified.add(offSet);
 
 				for (int i = 0; i < offSetInModified.size(); i++) {
@@ -1011,105 +1118,64 @@ public class SpectralAlignment {
 			}
 		}
 
-		while (!offSetToRemove.isEmpty()) {
-			offSet = offSetToRemove.get(0);
-			String toRemove = "[".concat(String.valueOf(offSet));
-			toRemove = toRemove.replace('.', ',');
-			int begin = modified1.indexOf(toRemove);
-			int end = modified1.indexOf("]", begin);
-			if (begin > -1) {
-				String modified = modified1;
-				modified1 = modified1.substring(0, begin);
-				modified1 = modified1.concat(modified.substring(end + 1));
+		// the first offset with each value is removed
+		for (double toRemove : offSetToRemove) {
+			for (int position = 0; position <= modified1.length(); position++) {
+				if (modified1.hasShift(position) && modified1.getShift(position) == toRemove) {
+					modified1.removeShift(position);
+					break;
+				}
 			}
-			offSetToRemove.remove(0);
 		}
 
-		if (modified1.charAt(modified1.length() - 1) == '_')
-			modified1 = modified1.substring(0, modified1.length() - 1);
-
 		return modified1;
 	}
 
 	/**
 	 * Use to try to explain negative offset with deletion of amino acids
 	 * 
-	 * @param modified1 : The hit modified sequence
+	 * @param modified  : The hit modified sequence
 	 * @param precision : The mass spectrometer precision
 	 * @return the new hit modified with some negative offset explain
 	 */
-	public String eliminateNegativeOffset(String modified1, double precision) {
-		// System.out.println("Elimination des neg offsets");
+	public HitModified eliminateNegativeOffset(HitModified modified, double precision) {
+		HitModified modified1 = new HitModified(modified);
 
-		Pattern p = Pattern.compile("-\\d+,\\d+");
-		Matcher m = p.matcher(modified1);
-		double offSet = 0.0;
-		int beginIndex = 0;
-		int i = 0;
-
-		while (m.find(beginIndex + 1)) { // do not process several times the same offSet
-			beginIndex = m.start();
-			int endIndex = modified1.indexOf(']', beginIndex);
-			String value = modified1.substring(beginIndex, endIndex);
-			value = value.replace(',', '.');
-			offSet = -Double.valueOf(value);
-			i = beginIndex;
+		for (int position = 0; position <= modified1.length(); position++) {
+			if (!modified1.hasShift(position) || !HitModified.isNegative(modified1.getShift(position)))
+				continue;
+			double offSet = -modified1.getShift(position);
 
 			// While offSet negative and aa not_found, try to remove aminoacids
-			// starting position i, find the first unfound aa
-
-			while (i > 3) {
-				if ((modified1.charAt(i - 2) == ']') && (modified1.charAt(i - 4) == '['))
-					i = i - 3;
-				else
-					break;
-			}
-
-			int startUnSeen = i;
-			while ((offSet > precision) && (i < beginIndex)) {
-				// System.out.println("Pour le modified : " + modified1);
-				// System.out.println("a i = " + i);
-				// System.out.println(offSet);
-				String aa = String.valueOf(modified1.charAt(i));
-				double mass = AminoAcids.getUnitMass(aa);
-				// System.out.println(aa + " of mass " + mass);
+			// starting at the first unfound aa of the block just before the offset
+			int startUnSeen = position;
+			while (startUnSeen > 0 && !modified1.isFound(startUnSeen - 1)
+					&& (startUnSeen == position || !modified1.hasShift(startUnSeen)))
+				startUnSeen--;
+
+			int i = startUnSeen;
+			while ((offSet > precision) && (i < position)) {
+				double mass = AminoAcids.getUnitMass(String.valueOf(modified1.getResidue(i)));
 				if (offSet - mass > -precision) {
 					offSet = offSet - mass;
-					i = i + 3;
+					i = i + 1;
 					setExplainedMass(getExplainedMass() + mass);
-					// System.out.println("I cut a neg offset");
 				} else {
 					break;
 				}
 			}
 
-			String modified = modified1;
-			if (startUnSeen > 1)
-				modified1 = modified1.substring(0, startUnSeen - 1);
+			if (Math.abs(offSet) > precision)
+				modified1.setShift(position, -offSet);
 			else
-				modified1 = "";
-
-			modified1 = modified1.concat(modified.substring(i - 1, beginIndex - 1));
-			beginIndex = startUnSeen;
-
-			if (Math.abs(offSet) > precision) {
-				String addOffset = "[#";
-				addOffset = addOffset.concat(SGXProperties.DECIMALFORM.format(offSet));
-				addOffset = addOffset.concat("]");
-				modified1 = modified1.concat(addOffset);
-				beginIndex = beginIndex + addOffset.length();
-			}
-
-			if (endIndex + 1 < modified.length())
-				modified1 = modified1.concat(modified.substring(endIndex + 1));
+				modified1.removeShift(position);
 
-			m = p.matcher(modified1);
-
-			if (beginIndex >= modified1.length())
-				break;
+			// amino acids that explain the offset are deleted
+			modified1.removeResidues(startUnSeen, i - startUnSeen);
+			position -= i - startUnSeen;
 		}
 
-		return modified1.replace("#", "-");
+		return modified1;
 	}
 
 	/**
@@ -1123,38 +1189,27 @@ public class SpectralAlignment {
 	 * @param offSet                  : The not-aligned staying mass
 	 * @param nbSharedPeaksAfterAlign : Number of shared peak with spectra for the
 	 *                                best hit modified
-	 * @param experimentalMassList    : list of masses in experimental spectrum
+	 * @param experimentalMasses      : list of masses in experimental spectrum
 	 * @param precision               : The precision of the Mass spectrometer
 	 * @return a new hit modified
 	 */
-	public String tryToCumulateOffSets(String bestModified, double offSet, int nbSharedPeaksAfterAlign,
-			ArrayList<Double> experimentalMassList, double precision) {
+	public HitModified tryToCumulateOffSets(HitModified bestModified, double offSet, int nbSharedPeaksAfterAlign,
+			double[] experimentalMasses, double precision) {
 
-		Pattern p = Pattern.compile("\\[-?\\d+,\\d+");
-		Matcher m = p.matcher(bestModified);
-		int beginIndex = 0;
-		int endIndex = 0;
+		for (int position = 0; position <= bestModified.length(); position++) {
+			if (!bestModified.hasShift(position))
+				continue;
+			double testOffSet = offSet + bestModified.getShift(position);
 
-		while (m.find(endIndex)) {
-			beginIndex = m.start();
-			endIndex = bestModified.indexOf(']', beginIndex);
-			String value = bestModified.substring(beginIndex + 1, endIndex);
-			value = value.replace(',', '.');
-			double testOffSet = offSet + Double.valueOf(value);
+			HitModified modified1 = new HitModified(bestModified);
+			modified1.setShift(position, testOffSet, HitModified.THREE_DECIMALS);
 
-			String modified1 = bestModified.substring(0, beginIndex + 1);
-			modified1 = modified1.concat(String.format("%.3f", testOffSet));
-			modified1 = modified1.concat(bestModified.substring(endIndex, bestModified.length()));
-
-			int nbPeaksAndMass = numberSharedPeaks(modified1, experimentalMassList, precision);
+			int nbPeaksAndMass = numberSharedPeaks(modified1, experimentalMasses, precision);
 
 			if (nbPeaksAndMass >= nbSharedPeaksAfterAlign) {
 				nbSharedPeaksAfterAlign = nbPeaksAndMass;
 				bestModified = modified1;
-				m = p.matcher(bestModified);
 			}
-			if (endIndex >= bestModified.length())
-				break;
 		}
 		return bestModified;
 	}
@@ -1162,174 +1217,78 @@ public class SpectralAlignment {
 	/**
 	 * Use to remove brackets around not found Amino acids when the B or Y peak
 	 * corresponding to the amino acid in the sequence is in the experimental peak
-	 * list
+	 * list. The peaks are checked by the last final annotation of the peak
+	 * evaluator, made on this hit modified
 	 *
-	 * @param betterModified       : The better sequence of hit Modified
-	 * @param experimentalMassList : The list of mass that are in the experimental
-	 *                             spectrum
-	 * @param precision            : The precision of the mass spectrometer
+	 * @param betterModified : The better sequence of hit Modified
 	 * @return the new sequence without brackets around found amino acids after all
 	 *         post treatments
 	 */
-	public static String removeBracketsForAlignedAA(String betterModified, ArrayList<Double> experimentalMassList,
-			double precision) {
+	public HitModified removeBracketsForAlignedAA(HitModified betterModified) {
 
-		StringBuilder workModified = new StringBuilder();
-		// we put the first char of the sequence to initiate
-		workModified.append(betterModified.charAt(0));
-
-		for (int i = 1; i < betterModified.length(); i++) {
-			boolean founded = false;
-
-			if (betterModified.charAt(i - 1) == '[' && betterModified.charAt(i + 1) == ']') {
-				// cut the sequence to get easily b and y for the char at i
-				String partB = betterModified.substring(0, i + 2);
-				String partY = betterModified.substring(i - 1);
-				// generate peakList to get the good peak from actual inside bracket amino acid
-				// and check if the B or the Y is in the spectrum
-				ArrayList<Double> peakListB = generatePeaks(partB, precision);
-				double peakB = peakListB.get(peakListB.size() - 2);
-				ArrayList<Double> peakListY = generatePeaks(partY, precision);
-				double peakY = peakListY.get(peakListY.size() - 1);
-				if (SGXProperties.DEBUG_MODE) {
-					// System.out.println(betterModified.charAt(i) + " : " + partB + " - " + partY +
-					// " == " + peakB
-					// + " and " + peakY);
-				}
-
-				// we check if the peak is in the experimental peak list
-				for (double mass : experimentalMassList) {
-					// if the peak is in the experimental spectrum
-					if (Math.abs(mass - peakB) < precision || Math.abs(mass - peakY) < precision) {
-						workModified.deleteCharAt(workModified.length() - 1);
-						workModified.append(betterModified.charAt(i));
-						founded = true;
-						i++;
-						break;
-					}
-				}
-				if (!founded) {
-					workModified.append(betterModified.charAt(i));
-				}
-			} else {
-				workModified.append(betterModified.charAt(i));
-			}
+		HitModified workModified = new HitModified(betterModified);
 
+		for (int i = 0; i < betterModified.length(); i++) {
+			if (_peakEvaluator.isFoundResidue(i))
+				workModified.setFound(i, true);
 		}
 
-		return workModified.toString();
+		return workModified;
 	}
 
 	/**
 	 * 
 	 * @param betterModified       : The better sequence of hit Modified
-	 * @param experimentalMassList : The list of mass that are in the experimental
+	 * @param experimentalMasses   : The list of mass that are in the experimental
 	 *                             spectrum
 	 * @param precision            : The precision of the mass spectrometer
 	 * @return the rate of the alignment
 	 */
-	public double calculateConfidenceRate(String betterModified, ArrayList<Double> experimentalMassList,
+	public double calculateConfidenceRate(HitModified betterModified, double[] experimentalMasses,
 			double precision) {
 
-		int nbSharedPeaks = numberSharedPeaks(betterModified, experimentalMassList, precision);
-		int nbTheoPeaks = generatePeaks(betterModified, precision).size();
+		int nbSharedPeaks = numberSharedPeaks(betterModified, experimentalMasses, precision);
+		// the hit modified is now the base of the peak evaluator
+		int nbTheoPeaks = _peakEvaluator.generateBase();
 
 		return (nbSharedPeaks * 1.0 / nbTheoPeaks * 1.0);
 
 	}
 
 	/**
-	 * 
-	 * @param betterModified
-	 * @param experimentalMassList
-	 * @param precision
-	 * @return the rate of intensity explain on total intensity of experimental
-	 *         peaks
-	 */
-	public double explainedIntensityRate(String betterModified, Map<Double, Double> experimentalPeakList,
-			double precision) {
-
-		double variablePrecision = precision;
-
-		double totalIntensity = 0.0;
-		double explainedIntensity = 0.0;
-
-		ArrayList<Double> experimentalMassList = new ArrayList<>(experimentalPeakList.keySet());
-		// add all intensities from the peak list in the variable
-		for (Double mass : experimentalMassList) {
-			totalIntensity += experimentalPeakList.get(mass);
-		}
-
-		ArrayList<Double> modifiedPeaks = generatePeaks(betterModified, precision);
-
-		double prevPeak = 0.0;
-
-		Collections.sort(experimentalMassList);
-
-		boolean changePrecision = false;
-
-		for (Double modPeak : modifiedPeaks) {
-			// we add a variation to the precision due to a possible error increased by
-			// amino acid mass addition
-			if (!changePrecision && modPeak >= 1000.0) {
-				changePrecision = true;
-				variablePrecision += 0.05;
-			}
-			if (Math.abs(modPeak - prevPeak) > variablePrecision) {
-
-				for (Double expePeak : experimentalMassList) {
-					if (Math.abs(modPeak - expePeak) < variablePrecision) {
-						explainedIntensity += experimentalPeakList.get(expePeak);
-						prevPeak = modPeak;
-						// System.out.println(modPeak + " ::::: " + expePeak);
-						break;
-					} else if (expePeak > modPeak)
-						break;
-
-				}
-			}
-		}
-
-		return explainedIntensity / totalIntensity;
-	}
-
-	/**
-	 * Use to put informations in Score and origin matrices
-	 * 
-	 * @param theoIndicesI  : the row coord to fill
-	 * @param expeIndiciesJ : the column coord to fill
-	 * @param score         : the score value to put in the score matrix
-	 * @param origin        : the column origin to put in origin matrix
-	 * @param alignType     : the type of alignment to put in origin matrix (-1 =
-	 *                      NA, 0 = ReA, 1 = A)
-	 */
-	public void setMatricesData(int theoIndicesI, int expeIndiciesJ, int score, int origin, int alignType) {
-		getMatScore().setData(theoIndicesI, expeIndiciesJ, score);
-		getMatOrigin().setDataOrigin(theoIndicesI, expeIndiciesJ, origin);
-		getMatOrigin().setDataAlign(theoIndicesI, expeIndiciesJ, alignType);
-	}
-
-	/**
-	 * Show the 3 matrices : Score, Origin, E
+	 * Show the workspace (Score and Origin) and the matrix E
 	 */
 	public void showMatrices() {
-		System.out.println("\n" + getExpeSpec().getMassList());
-		getMatScore().show(getTheoSpec().getMassList().size(), getExpeSpec().getMassList().size());
+		System.out.println("\n" + Arrays.toString(getExpeSpec().getMassArray()));
+		int nbRow = getTheoSpec().getMassArray().length;
+		int nbCol = getExpeSpec().getMassArray().length;
+		getWorkspace().show();
 		System.out.println("");
-		getMatOrigin().show(getTheoSpec().getMassList().size(), getExpeSpec().getMassList().size());
-		System.out.println("");
-		getMatE().show(getTheoSpec().getMassList().size(), getExpeSpec().getMassList().size());
+		MatrixE matE = new MatrixE(nbRow, nbCol);
+		matE.fillDMass(getTheoSpec().getMassArray(), getExpeSpec().getMassArray());
+		matE.show(nbRow, nbCol);
 	}
 
 	/**
 	 * Concat the result to put in the CSV result line WARNIG : Need to add : "Title
-	 * ; PSM ;" and the final "\n"
+	 * ; PSM ;" and the final "\n". In score mode, only the mass delta, the initial
+	 * shared peaks and the score are given
 	 */
 	public void makeFinalResult() {
-		setFinalResult(SGXProperties.DECIMALFORM.format(getTrueDeltaMass()) + ";" + getNbPeakInitial() + ";"
-				+ getNbReajustedPeak() + ";" + getHitModifiedSeq() + ";" + getOtherModified() + ";"
-				+ getModificationNumber() + ";" + SGXProperties.DECIMALFORM.format(getTotDeltaMass()) + ";"
-				+ getMaxScore() + ";" + getConfidenceRate());
+		StringBuilder result = new StringBuilder(128);
+		if (SGXProperties.SCORE_MODE) {
+			SGXProperties.DECIMALFORM.append(result, getTrueDeltaMass()).append(';').append(getNbPeakInitial())
+					.append(';').append(getMaxScore());
+			setFinalResult(result.toString());
+			return;
+		}
+
+		SGXProperties.DECIMALFORM.append(result, getTrueDeltaMass()).append(';').append(getNbPeakInitial())
+				.append(';').append(getNbReajustedPeak()).append(';').append(getHitModifiedSeq()).append(';')
+				.append(getOtherModified()).append(';').append(getModificationNumber()).append(';');
+		SGXProperties.DECIMALFORM.append(result, getTotDeltaMass()).append(';').append(getMaxScore()).append(';')
+				.append(getConfidenceRate());
+		setFinalResult(result.toString());
 	}
 	
 
@@ -1391,28 +1350,20 @@ public class SpectralAlignment {
 
 	// Getters and Setters
 
-	public MatrixScore getMatScore() {
-		return _matScore;
-	}
-
-	public void setMatScore(MatrixScore matScore) {
-		_matScore = matScore;
-	}
-
-	public MatrixE getMatE() {
-		return _matE;
+	public AlignmentWorkspace getWorkspace() {
+		return _workspace;
 	}
 
-	public void setMatE(MatrixE matE) {
-		_matE = matE;
+	public void setWorkspace(AlignmentWorkspace workspace) {
+		_workspace = workspace;
 	}
 
-	public MatrixOrigin getMatOrigin() {
-		return _matOrigin;
+	public AlignmentRow getAlignmentRow() {
+		return _alignmentRow;
 	}
 
-	public void setMatOrigin(MatrixOrigin matOrigin) {
-		_matOrigin = matOrigin;
+	public void setAlignmentRow(AlignmentRow alignmentRow) {
+		_alignmentRow = alignmentRow;
 	}
 
 	public ExperimentalSpectrum getExpeSpec() {
@@ -1431,27 +1382,27 @@ public class SpectralAlignment {
 		_theoSpec = theoSpec;
 	}
 
-	public String getHitModifiedSeq() {
+	public HitModified getHitModifiedSeq() {
 		return _hitModifiedSeq;
 	}
 
-	public void setHitModifiedSeq(String hitModifiedSeq) {
+	public void setHitModifiedSeq(HitModified hitModifiedSeq) {
 		_hitModifiedSeq = hitModifiedSeq;
 	}
 
-	public String getModifiedAfterBestScore() {
+	public HitModified getModifiedAfterBestScore() {
 		return _modifiedAfterBestScore;
 	}
 
-	public void setModifiedAfterBestScore(String modifiedAfterBestScore) {
+	public void setModifiedAfterBestScore(HitModified modifiedAfterBestScore) {
 		_modifiedAfterBestScore = modifiedAfterBestScore;
 	}
 
-	public String getOtherModified() {
+	public HitModified getOtherModified() {
 		return _otherModified;
 	}
 
-	public void setOtherModified(String otherModified) {
+	public void setOtherModified(HitModified otherModified) {
 		_otherModified = otherModified;
 	}
 
@@ -1503,6 +1454,10 @@ public class SpectralAlignment {
 		_explainedMass = explainedMass;
 	}
 
+	public int getNbPrunedAlignments() {
+		return _nbPrunedAlignments;
+	}
+
 	public int getMaxScore() {
 		return _maxScore;
 	}
@@ -1535,6 +1490,10 @@ public class SpectralAlignment {
 		_finalResult = finalResult;
 	}
 
+	public ArrayList<String> getAlternativeResults() {
+		return _alternativeResults;
+	}
+
 	public static int getScoreToApply(String alignType) {
 		return SGXProperties.SCORETOAPPLY.get(alignType);
 	}
@@ -123,6 +123,9 @@ public class SpectralAlignmentTask extends Thread {
 				// if the score is less than filter, result is not write on the output
 				if (getSpecAlign().getMaxScore() >= SGXProperties.SCORE_MIN_DISPLAY) {
 					output.append(titleScan + ";" + psm + ";" + getSpecAlign().getFinalResult() + "\n");
+					// the next best alignments follow the best one
+					for (String alternative : getSpecAlign().getAlternativeResults())
+						output.append(titleScan + ";" + psm + ";" + alternative + "\n");
 				}
 			} else {
 				output.append(titleScan + ";" + psm + ";Not Good Title\n");
@@ -0,0 +1,122 @@
+package matrix;
+
+/**
+ * Rows of the alignment kept every few rows in linear memory mode. The rows
+ * between two checkpoints are computed again from the first one when the
+ * backtrack needs them, so only a few rows are stored in the
+ * {@link AlignmentWorkspace}. A checkpoint keeps the scores and the packed
+ * origins of its row, with the last rows of chains and of alignments of each
+ * column until this row (see {@link AlignmentRow}) : this is all what is needed
+ * to compute the next rows
+ *
+ * @author Gregoire Prunier, Albane Lysiak, Dominique Tessier
+ *
+ */
+public class AlignmentCheckpoints {
+
+	// Attributes
+	/**
+	 * the number of column used by the actual alignment
+	 */
+	private int _nbColumn;
+	/**
+	 * the number of rows between two checkpoints. The checkpoint k is the row k *
+	 * interval, the row 0 is not kept as it is known
+	 */
+	private int _interval;
+
+	/**
+	 * flat arrays where the column j of the checkpoint k (from 1) is at (k - 1) *
+	 * nbColumn + j
+	 */
+	private int[] _scores;
+	private int[] _packedOrigins;
+	private int[] _lastChainRows;
+	private int[] _lastAlignRows;
+
+	// Constructor
+	/**
+	 * A constructor without reserved size, the arrays grow when needed
+	 */
+	public AlignmentCheckpoints() {
+		allocate(0);
+	}
+
+	// Operators
+	/**
+	 * Prepare the checkpoints for a new spectrum pair. The interval is about the
+	 * square root of twice the number of rows, which gives the lowest memory for
+	 * the checkpoints and the rows between two of them (a checkpoint uses twice
+	 * the memory of a row of the workspace)
+	 *
+	 * @param nbRow    number of peak for the theoretical spectrum
+	 * @param nbColumn number of peak for the experimental spectrum
+	 */
+	public void reset(int nbRow, int nbColumn) {
+		_nbColumn = nbColumn;
+		_interval = Math.max(1, (int) Math.ceil(Math.sqrt(2.0 * (nbRow - 1))));
+		int size = ((nbRow - 1) / _interval) * nbColumn;
+		if (_scores.length < size)
+			allocate(Math.max(size, _scores.length + (_scores.length >> 1)));
+	}
+
+	/**
+	 * Keep a row as a checkpoint. The row must be the previous row of the
+	 * alignment row, set from the computed row (see
+	 * {@link AlignmentRow#setActualRowAsPrevious(int)})
+	 *
+	 * @param checkpoint the checkpoint (the row is checkpoint * interval)
+	 * @param row        the buffers of the alignment row
+	 */
+	public void save(int checkpoint, AlignmentRow row) {
+		int offset = (checkpoint - 1) * _nbColumn;
+		int[] rowScores = row.getRowScores();
+		int[] rowOrigins = row.getRowOrigins();
+		int[] rowAligns = row.getRowAligns();
+		for (int j = 0; j < _nbColumn; j++) {
+			_scores[offset + j] = rowScores[j];
+			_packedOrigins[offset + j] = MatrixOrigin.pack(rowOrigins[j], rowAligns[j]);
+		}
+		System.arraycopy(row.getLastChainRows(), 0, _lastChainRows, offset, _nbColumn);
+		System.arraycopy(row.getLastAlignRows(), 0, _lastAlignRows, offset, _nbColumn);
+	}
+
+	/**
+	 * Put back a checkpoint in the workspace, that must store its row, and the
+	 * last rows of chains and of alignments in the alignment row. The next rows
+	 * can then be computed with {@link AlignmentRow#setPreviousRow}
+	 *
+	 * @param checkpoint the checkpoint (the row is checkpoint * interval)
+	 * @param row        the buffers of the alignment row
+	 * @param workspace  the workspace of the alignment
+	 */
+	public void restore(int checkpoint, AlignmentRow row, AlignmentWorkspace workspace) {
+		int offset = (checkpoint - 1) * _nbColumn;
+		int rowIndex = checkpoint * _interval;
+		for (int j = 0; j < _nbColumn; j++) {
+			int packed = _packedOrigins[offset + j];
+			workspace.setData(rowIndex, j, _scores[offset + j], MatrixOrigin.unpackOrigin(packed),
+					MatrixOrigin.unpackAlign(packed));
+		}
+		System.arraycopy(_lastChainRows, offset, row.getLastChainRows(), 0, _nbColumn);
+		System.arraycopy(_lastAlignRows, offset, row.getLastAlignRows(), 0, _nbColumn);
+	}
+
+	/**
+	 * Allocate all arrays for the given number of cases
+	 *
+	 * @param capacity number of cases
+	 */
+	private void allocate(int capacity) {
+		_scores = new int[capacity];
+		_packedOrigins = new int[capacity];
+		_lastChainRows = new int[capacity];
+		_lastAlignRows = new int[capacity];
+	}
+
+	// Getters
+	public int getInterval() {
+		return _interval;
+	}
+
+}
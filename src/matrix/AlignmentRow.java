@@ -0,0 +1,288 @@
+package matrix;
+
+import utility.SGXProperties;
+
+/**
+ * Buffers indexed by column that are used to compute one row of the alignment.
+ * A row i only depends on the row i-1 and on the masses, so the row i-1 is
+ * copied here in contiguous arrays with its running indexes, and the row i is
+ * computed in other arrays before being stored in the {@link AlignmentWorkspace}.
+ * The scores to apply for each column (that depend on the type of the
+ * experimental peak) are also set once for each alignment
+ *
+ * @author Gregoire Prunier, Albane Lysiak, Dominique Tessier
+ *
+ */
+public class AlignmentRow {
+
+	// Attributes
+	/**
+	 * the number of column used by the actual alignment
+	 */
+	private int _nbColumn;
+
+	/**
+	 * Scores to add for each column in case of alignment, re-alignment,
+	 * re-alignment without offset and re-alignment on the last amino acid
+	 */
+	private int[] _alignScores;
+	private int[] _reAlignScores;
+	private int[] _reAlignNOScores;
+	private int[] _reAlignEndScores;
+
+	/**
+	 * Scores and alignment types of the previous row
+	 */
+	private int[] _prevScores;
+	private int[] _prevAligns;
+	/**
+	 * Running maximum of the previous row, from column 0 to each column, and the
+	 * column where this maximum is found (the highest column if several)
+	 */
+	private int[] _prevRowMaxScores;
+	private int[] _prevRowMaxOrigins;
+	/**
+	 * For each column, the last row (until the previous row) where the origin is
+	 * not the column itself, i.e. where a chain of non alignment on this column
+	 * started (0 if none)
+	 */
+	private int[] _lastChainRows;
+	/**
+	 * For each column, the last row (until the previous row) that is an alignment
+	 * or a re-alignment (-1 if none)
+	 */
+	private int[] _lastAlignRows;
+
+	/**
+	 * For each column j of the actual row, the column k where j - k gives the
+	 * amino acid of the row (-1 if none)
+	 */
+	private int[] _kValues;
+	/**
+	 * Scores, origin columns and alignment types computed for the actual row
+	 */
+	private int[] _rowScores;
+	private int[] _rowOrigins;
+	private int[] _rowAligns;
+
+	// Constructor
+	/**
+	 * A constructor that reserves the buffers for a first number of columns (it
+	 * can be 0, the buffers grow when needed)
+	 *
+	 * @param nbColumn number of peak for the experimental spectrum
+	 */
+	public AlignmentRow(int nbColumn) {
+		allocate(nbColumn);
+	}
+
+	// Operators
+	/**
+	 * Prepare the buffers for a new experimental spectrum and set the scores to
+	 * apply for each of its columns
+	 *
+	 * @param nbColumn   number of peak for the experimental spectrum
+	 * @param peakTypes  type of each experimental peak (0 native, 1 symmetric, 2
+	 *                   both)
+	 * @param scoreTable scores to apply for each type of peak (see
+	 *                   {@link SGXProperties#createScoreTable()})
+	 */
+	public void reset(int nbColumn, byte[] peakTypes, int[][] scoreTable) {
+		if (_rowScores.length < nbColumn) {
+			allocate(Math.max(nbColumn, _rowScores.length + (_rowScores.length >> 1)));
+		}
+		_nbColumn = nbColumn;
+
+		for (int j = 0; j < nbColumn; j++) {
+			int[] typeScores = scoreTable[peakTypes[j]];
+			_alignScores[j] = typeScores[SGXProperties.SCORE_ALIGN];
+			_reAlignScores[j] = typeScores[SGXProperties.SCORE_REALIGN];
+			_reAlignNOScores[j] = typeScores[SGXProperties.SCORE_REALIGN_NO];
+			_reAlignEndScores[j] = typeScores[SGXProperties.SCORE_REALIGN_END];
+		}
+	}
+
+	/**
+	 * Copy a complete row of the workspace as the previous row and update the
+	 * running indexes. Rows must be given in order from 0
+	 *
+	 * @param workspace the workspace of the alignment
+	 * @param row       the complete row (row i-1 when computing row i)
+	 */
+	public void setPreviousRow(AlignmentWorkspace workspace, int row) {
+		int bestScore = Integer.MIN_VALUE;
+		int origin = 0;
+		for (int m = 0; m < _nbColumn; m++) {
+			int score = workspace.getScore(row, m);
+			byte align = workspace.getAlign(row, m);
+			_prevScores[m] = score;
+			_prevAligns[m] = align;
+
+			if (score >= bestScore) {
+				bestScore = score;
+				origin = m;
+			}
+			_prevRowMaxScores[m] = bestScore;
+			_prevRowMaxOrigins[m] = origin;
+
+			// the first row is never taken as the start of a chain or as an alignment
+			if (row == 0) {
+				_lastChainRows[m] = 0;
+				_lastAlignRows[m] = -1;
+			} else {
+				if (workspace.getOrigin(row, m) != m)
+					_lastChainRows[m] = row;
+				if (align != MatrixOrigin.NON_ALIGN)
+					_lastAlignRows[m] = row;
+			}
+		}
+	}
+
+	/**
+	 * Set the first row (row 0) as the previous row, when the rows are not stored
+	 * in a workspace
+	 */
+	public void setFirstRow() {
+		for (int m = 0; m < _nbColumn; m++) {
+			_prevScores[m] = 0;
+			_prevAligns[m] = MatrixOrigin.NON_ALIGN;
+			_prevRowMaxScores[m] = 0;
+			_prevRowMaxOrigins[m] = m;
+			_lastChainRows[m] = 0;
+			_lastAlignRows[m] = -1;
+		}
+	}
+
+	/**
+	 * Take the computed row as the previous row and update the running indexes,
+	 * when the rows are not stored in a workspace (only two rows are kept). The
+	 * column 0 is set like in a workspace : null score and non alignment from
+	 * column 0
+	 *
+	 * @param row the computed row (row i-1 when computing row i)
+	 */
+	public void setActualRowAsPrevious(int row) {
+		_rowScores[0] = 0;
+		_rowOrigins[0] = 0;
+		_rowAligns[0] = MatrixOrigin.NON_ALIGN;
+
+		int bestScore = Integer.MIN_VALUE;
+		int origin = 0;
+		for (int m = 0; m < _nbColumn; m++) {
+			int score = _rowScores[m];
+			int align = _rowAligns[m];
+			_prevScores[m] = score;
+			_prevAligns[m] = align;
+
+			if (score >= bestScore) {
+				bestScore = score;
+				origin = m;
+			}
+			_prevRowMaxScores[m] = bestScore;
+			_prevRowMaxOrigins[m] = origin;
+
+			if (_rowOrigins[m] != m)
+				_lastChainRows[m] = row;
+			if (align != MatrixOrigin.NON_ALIGN)
+				_lastAlignRows[m] = row;
+		}
+	}
+
+	/**
+	 * Store the computed columns of the actual row in the workspace
+	 *
+	 * @param workspace the workspace of the alignment
+	 * @param row       the actual row
+	 * @param firstJ    the first computed column
+	 * @param lastJ     the last computed column
+	 */
+	public void storeRow(AlignmentWorkspace workspace, int row, int firstJ, int lastJ) {
+		for (int j = firstJ; j <= lastJ; j++) {
+			workspace.setData(row, j, _rowScores[j], _rowOrigins[j], _rowAligns[j]);
+		}
+	}
+
+	/**
+	 * Allocate all buffers for the given number of columns
+	 *
+	 * @param capacity number of columns
+	 */
+	private void allocate(int capacity) {
+		_alignScores = new int[capacity];
+		_reAlignScores = new int[capacity];
+		_reAlignNOScores = new int[capacity];
+		_reAlignEndScores = new int[capacity];
+		_prevScores = new int[capacity];
+		_prevAligns = new int[capacity];
+		_prevRowMaxScores = new int[capacity];
+		_prevRowMaxOrigins = new int[capacity];
+		_lastChainRows = new int[capacity];
+		_lastAlignRows = new int[capacity];
+		_kValues = new int[capacity];
+		_rowScores = new int[capacity];
+		_rowOrigins = new int[capacity];
+		_rowAligns = new int[capacity];
+	}
+
+	// Getters
+	public int getNbColumn() {
+		return _nbColumn;
+	}
+
+	public int[] getAlignScores() {
+		return _alignScores;
+	}
+
+	public int[] getReAlignScores() {
+		return _reAlignScores;
+	}
+
+	public int[] getReAlignNOScores() {
+		return _reAlignNOScores;
+	}
+
+	public int[] getReAlignEndScores() {
+		return _reAlignEndScores;
+	}
+
+	public int[] getPrevScores() {
+		return _prevScores;
+	}
+
+	public int[] getPrevAligns() {
+		return _prevAligns;
+	}
+
+	public int[] getPrevRowMaxScores() {
+		return _prevRowMaxScores;
+	}
+
+	public int[] getPrevRowMaxOrigins() {
+		return _prevRowMaxOrigins;
+	}
+
+	public int[] getLastChainRows() {
+		return _lastChainRows;
+	}
+
+	public int[] getLastAlignRows() {
+		return _lastAlignRows;
+	}
+
+	public int[] getKValues() {
+		return _kValues;
+	}
+
+	public int[] getRowScores() {
+		return _rowScores;
+	}
+
+	public int[] getRowOrigins() {
+		return _rowOrigins;
+	}
+
+	public int[] getRowAligns() {
+		return _rowAligns;
+	}
+
+}
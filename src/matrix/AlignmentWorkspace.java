@@ -0,0 +1,220 @@
+package matrix;
+
+/**
+ * Workspace of the alignment that stores, for each case, the score and the
+ * packed origin (origin column and alignment type, see {@link MatrixOrigin}) side
+ * by side in one flat row-major array. The width of a row is the number of
+ * peaks of the actual experimental spectrum, so the cases used by one alignment
+ * are contiguous in memory. In linear memory mode, only some consecutive rows
+ * are stored (see {@link AlignmentCheckpoints})
+ * 
+ * @author Gregoire Prunier, Albane Lysiak, Dominique Tessier
+ *
+ */
+public class AlignmentWorkspace {
+
+	// Attributes
+	/**
+	 * the number of column used by the actual alignment (size of the experimental
+	 * spectrum)
+	 */
+	private int _nbColumn;
+	/**
+	 * the number of row used by the actual alignment (size of the theoretical
+	 * spectrum)
+	 */
+	private int _nbRow;
+	/**
+	 * the first and the last rows stored (all rows except in linear memory mode)
+	 */
+	private int _firstRow;
+	private int _lastRow;
+	/**
+	 * flat array where the case [row, column] uses the int at 2 * ((row -
+	 * firstRow) * nbColumn + column) for the score and the following one for the
+	 * packed origin
+	 */
+	private int[] _dataFrame;
+
+	// Constructor
+	/**
+	 * A constructor that reserves the workspace for a first spectrum pair size (it
+	 * can be 0, the workspace grows when needed)
+	 * 
+	 * @param nbRow    number of peak for the theoretical spectrum
+	 * @param nbColumn number of peak for the experimental spectrum
+	 */
+	public AlignmentWorkspace(int nbRow, int nbColumn) {
+		_dataFrame = new int[2 * nbRow * nbColumn];
+		reset(nbRow, nbColumn);
+	}
+
+	// Operators
+	/**
+	 * Prepare the workspace for a new spectrum pair. The array is reallocated only
+	 * if it is too small, and then grows by half of its size at least to limit
+	 * reallocations. The first row and the first column are initialized with
+	 * a null score and a non alignment coming from column 0
+	 * 
+	 * @param nbRow    number of peak for the theoretical spectrum
+	 * @param nbColumn number of peak for the experimental spectrum
+	 */
+	public void reset(int nbRow, int nbColumn) {
+		reset(nbRow, nbColumn, 0, nbRow - 1);
+	}
+
+	/**
+	 * Prepare the workspace to store only the rows from firstRow to lastRow of a
+	 * spectrum pair (linear memory mode). The other rows can't be read. The first
+	 * column of these rows, and the first row if stored, are initialized like in
+	 * {@link #reset(int, int)}
+	 * 
+	 * @param nbRow    number of peak for the theoretical spectrum
+	 * @param nbColumn number of peak for the experimental spectrum
+	 * @param firstRow the first row stored
+	 * @param lastRow  the last row stored
+	 */
+	public void reset(int nbRow, int nbColumn, int firstRow, int lastRow) {
+		int size = 2 * (lastRow - firstRow + 1) * nbColumn;
+		if (_dataFrame.length < size) {
+			_dataFrame = new int[Math.max(size, _dataFrame.length + (_dataFrame.length >> 1))];
+		}
+		_nbRow = nbRow;
+		_nbColumn = nbColumn;
+		_firstRow = firstRow;
+		_lastRow = lastRow;
+
+		int nonAlign = MatrixOrigin.pack(0, MatrixOrigin.NON_ALIGN);
+		if (firstRow == 0 && lastRow >= 0) {
+			for (int j = 0; j < nbColumn; j++) {
+				_dataFrame[2 * j] = 0;
+				_dataFrame[2 * j + 1] = nonAlign;
+			}
+		}
+		for (int i = Math.max(1, firstRow); i <= lastRow; i++) {
+			int index = 2 * (i - firstRow) * nbColumn;
+			_dataFrame[index] = 0;
+			_dataFrame[index + 1] = nonAlign;
+		}
+	}
+
+	/**
+	 * Check if a row is stored in the workspace
+	 * 
+	 * @param row indices of the row (theoretical peak)
+	 * @return true if the cases of the row can be read
+	 */
+	public boolean containsRow(int row) {
+		return row >= _firstRow && row <= _lastRow;
+	}
+
+	/**
+	 * Show method to display the score and the origin of the used cases (of the
+	 * stored rows)
+	 */
+	public void show() {
+		for (int i = _firstRow; i <= _lastRow; i++) {
+			for (int j = 0; j < getNbColumn(); j++) {
+				System.out.printf("%5d", getScore(i, j));
+			}
+			System.out.println();
+		}
+		System.out.println("");
+		for (int i = _firstRow; i <= _lastRow; i++) {
+			for (int j = 0; j < getNbColumn(); j++) {
+				System.out.printf("[%s,%d]\t", getAlignType(i, j), getOrigin(i, j));
+			}
+			System.out.println();
+		}
+	}
+
+	// Getters and Setters
+	/**
+	 * Get back the number of column used by the actual alignment
+	 * 
+	 * @return number of column
+	 */
+	public int getNbColumn() {
+		return _nbColumn;
+	}
+
+	/**
+	 * Get back the number of row used by the actual alignment
+	 * 
+	 * @return number of row
+	 */
+	public int getNbRow() {
+		return _nbRow;
+	}
+
+	/**
+	 * Get back the score of the case [row, column]
+	 * 
+	 * @param row    indices of the row (theoretical peak)
+	 * @param column indices of the column (experimental peak)
+	 * @return the score inside the case
+	 */
+	public int getScore(int row, int column) {
+		return _dataFrame[2 * ((row - _firstRow) * _nbColumn + column)];
+	}
+
+	/**
+	 * Get back the indices of the origin column of the score of the case [row,
+	 * column] (from row - 1)
+	 * 
+	 * @param row    indices of the row (theoretical peak)
+	 * @param column indices of the column (experimental peak)
+	 * @return the origin column
+	 */
+	public int getOrigin(int row, int column) {
+		return MatrixOrigin.unpackOrigin(_dataFrame[2 * ((row - _firstRow) * _nbColumn + column) + 1]);
+	}
+
+	/**
+	 * Get back the alignment type code of the case [row, column] : Alignment(2)
+	 * Re-alignment(1), No-alignment (0)
+	 * 
+	 * @param row    indices of the row (theoretical peak)
+	 * @param column indices of the column (experimental peak)
+	 * @return the code of the alignment type
+	 */
+	public byte getAlign(int row, int column) {
+		return MatrixOrigin.unpackAlign(_dataFrame[2 * ((row - _firstRow) * _nbColumn + column) + 1]);
+	}
+
+	/**
+	 * Get a String value for the type of alignment for better understanding
+	 * 
+	 * @param row    indices of the row (theoretical peak)
+	 * @param column indices of the column (experimental peak)
+	 * @return String value of the type of alignment
+	 */
+	public String getAlignType(int row, int column) {
+		switch (getAlign(row, column)) {
+		case MatrixOrigin.NON_ALIGN:
+			return "NA"; // NON ALIGN
+		case MatrixOrigin.RE_ALIGN:
+			return "RA"; // RE ALIGN
+		case MatrixOrigin.ALIGN:
+			return "AL"; // ALIGN
+		}
+		return "Err";
+	}
+
+	/**
+	 * Set the score, the origin column and the alignment type of the case [row,
+	 * column]
+	 * 
+	 * @param row       indices of the row (theoretical peak)
+	 * @param column    indices of the column (experimental peak)
+	 * @param score     the score value to put in the case
+	 * @param origin    the column where come from the score (from row - 1)
+	 * @param alignType the code of the alignment type
+	 */
+	public void setData(int row, int column, int score, int origin, int alignType) {
+		int index = 2 * ((row - _firstRow) * _nbColumn + column);
+		_dataFrame[index] = score;
+		_dataFrame[index + 1] = MatrixOrigin.pack(origin, alignType);
+	}
+
+}
@@ -50,6 +50,23 @@ public class MatrixE {
 		}
 	}
 
+	/**
+	 * Same as {@link #fillDMass(List, List)} but working on primitive mass arrays
+	 * to avoid unboxing every mass
+	 * 
+	 * @param theoreticalMasses  array of all masses from theoretical spectrum
+	 * @param experimentalMasses array of all masses from experimental spectrum
+	 */
+	public void fillDMass(double[] theoreticalMasses, double[] experimentalMasses) {
+		for (int i = 0; i < theoreticalMasses.length; i++) {
+			double[] row = _dataFrame[i];
+			double theoMass = theoreticalMasses[i];
+			for (int j = 0; j < experimentalMasses.length; j++) {
+				row[j] = experimentalMasses[j] - theoMass;
+			}
+		}
+	}
+
 	/**
 	 * Display the whole matrix
 	 */
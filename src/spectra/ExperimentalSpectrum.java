@@ -1,10 +1,5 @@
 package spectra;
 
-import java.util.ArrayList;
-import java.util.List;
-import java.util.Map;
-import java.util.TreeMap;
-
 import uk.ac.ebi.pride.tools.jmzreader.model.Spectrum;
 import utility.AminoAcids;
 import utility.SGXProperties;
@@ -25,10 +20,9 @@ public class ExperimentalSpectrum extends SGSpectrum {
 	private Spectrum _jmzSpectrumData;
 
 	/**
-	 * A peak list that contain information about if it is initial peak,
-	 * symmetrized, or both, to adapt the score system. Pair<Intensity, type>
+	 * The sum of the intensities of the peak list
 	 */
-	private Map<Double, Byte> _peakListSymmetrized;
+	private double _totalIntensity;
 
 	// Constructor
 	/**
@@ -55,6 +49,7 @@ public class ExperimentalSpectrum extends SGSpectrum {
 			filterIntensityRate(SGXProperties.INTENSITY_RATE);
 
 		createSymetricPeakList();
+		computeTotalIntensity();
 
 		setMainMass(calculateMass());
 
@@ -63,30 +58,44 @@ public class ExperimentalSpectrum extends SGSpectrum {
 	// Operator
 
 	/**
-	 * Create a SymetricPeakList that contain symmetric peaks and the information if
-	 * a peak is the initial peak, the symmetric peak, or both if already exist.
+	 * Create the mass peaks that contain symmetric peaks and the information if a
+	 * peak is the initial peak, the symmetric peak, or both if already exist.
 	 */
 	public void createSymetricPeakList() {
-		Map<Double, Byte> symPeakList = new TreeMap<>();
-		Map<Double, Double> tempMap = new TreeMap<>();
-		List<Double> tempSymList = new ArrayList<>();
-		double tempMass;
+		PeakArray peaks = getPeaks();
+		int nbPeak = peaks.size();
 
 		double precursorMass = getJmzSpectrumData().getPrecursorMZ();
 		int charge = getJmzSpectrumData().getPrecursorCharge();
 		double massProton = AminoAcids.getUnitMass("H+");
+		double symMass = (precursorMass * charge) + (2 * massProton) - (charge * massProton);
+
+		double[] tempSymMasses = new double[nbPeak];
+		for (int i = 0; i < nbPeak; i++) {
+			tempSymMasses[i] = symMass - peaks.getMz(i);
+		}
+
+		// the masses are searched in sorted indexes made once, at the precision
+		double[] massIndex = SGSpectrum.createMassIndex(peaks.getMzArray());
+		double[] symMassIndex = SGSpectrum.createMassIndex(tempSymMasses);
+
+		// the peaks are added in arrays, then sorted by mass
+		double[] masses = new double[2 * nbPeak + 2];
+		double[] intensities = new double[masses.length];
+		byte[] types = new byte[masses.length];
+		int size = 0;
 
 		// we do the symmetrization of peaks and put them if there are not already
 		// present, and set the type
-		for (Map.Entry<Double, Double> entry : intensityReverseClassified(getPeakList()).entrySet()) {
-			symPeakList.put(entry.getKey(), (byte) 0);
-			tempMap.put(entry.getKey(), entry.getValue());
-			tempMass = ((precursorMass * charge) + (2 * massProton) - (charge * massProton)) - entry.getKey();
-			tempSymList.add(tempMass);
-
-			if (!SGSpectrum.contains(tempMass, getMassList())) {
-				symPeakList.put(tempMass, (byte) 1);
-				tempMap.put(tempMass, entry.getValue());
+		for (int i = 0; i < nbPeak; i++) {
+			masses[size] = peaks.getMz(i);
+			intensities[size] = peaks.getIntensity(i);
+			types[size++] = PeakArray.INITIAL;
+
+			if (!SGSpectrum.contains(tempSymMasses[i], massIndex)) {
+				masses[size] = tempSymMasses[i];
+				intensities[size] = peaks.getIntensity(i);
+				types[size++] = PeakArray.SYMMETRIC;
 			}
 		}
 
@@ -94,36 +103,46 @@ public class ExperimentalSpectrum extends SGSpectrum {
 		// chance to align the first amino acid in b if it is present
 		double ntMass = AminoAcids.getUnitMass("NT");
 
-		if (!SGSpectrum.contains(ntMass, tempSymList)) {
-			symPeakList.put(ntMass, (byte) 0);
-			tempMap.put(ntMass, 1000.0);
+		if (!SGSpectrum.contains(ntMass, symMassIndex)) {
+			masses[size] = ntMass;
+			intensities[size] = 1000.0;
+			types[size++] = PeakArray.INITIAL;
 		}
 
 		// We add the B peak corresponding to the precursor (complete peptide)
-		double precusorBion = ((precursorMass * charge) + (2 * massProton) - (charge * massProton))
-				- AminoAcids.getYBaseMass();
+		double precusorBion = symMass - AminoAcids.getYBaseMass();
 
-		if (!SGSpectrum.contains(precusorBion, tempSymList)) {
-			symPeakList.put(precusorBion, (byte) 0);
-			tempMap.put(precusorBion, 1000.0);
+		if (!SGSpectrum.contains(precusorBion, symMassIndex)) {
+			masses[size] = precusorBion;
+			intensities[size] = 1000.0;
+			types[size++] = PeakArray.INITIAL;
 		}
 
+		PeakArray massPeaks = PeakArray.sortByMz(masses, intensities, types, size);
+
 		// we check if peak have already his symmetric, that correspond to both b and y.
-		for (Double mass : getPeakList().keySet()) {
-			if (SGSpectrum.contains(mass, tempSymList)) {
-				symPeakList.put(mass, (byte) 2);
+		for (int i = 0; i < nbPeak; i++) {
+			if (SGSpectrum.contains(peaks.getMz(i), symMassIndex)) {
+				massPeaks.setType(massPeaks.indexOf(peaks.getMz(i)), PeakArray.BOTH);
 
 			}
 
 		}
 
-		setPeakListSymmetrized(symPeakList);
-		setMassList(tempMap);
-		// setPeakList(tempMap);
+		setMassPeaks(massPeaks);
 
-		// System.out.println(" Sym size = " + symPeakList.size() + " - peakList size =
-		// " + tempMap.size());
+	}
 
+	/**
+	 * Compute the total intensity of the peak list, made once for all the post
+	 * treatments of the alignments of this spectrum
+	 */
+	public void computeTotalIntensity() {
+		double totalIntensity = 0.0;
+		for (double intensity : getPeaks().getIntensityArray()) {
+			totalIntensity += intensity;
+		}
+		setTotalIntensity(totalIntensity);
 	}
 
 	@Override
@@ -131,12 +150,12 @@ public class ExperimentalSpectrum extends SGSpectrum {
 
 		StringBuilder querry = new StringBuilder(getJmzSpectrumData().getId() + "\n");
 
-		for (Double mass : getMassList()) {
-			querry.append(mass + "\t" + getPeakList().get(mass) + "\n");
+		PeakArray massPeaks = getMassPeaks();
+		for (int i = 0; i < massPeaks.size(); i++) {
+			querry.append(massPeaks.getMz(i) + "\t" + massPeaks.getIntensity(i) + "\n");
 		}
 		return querry.toString();
 	}
-
 	/**
 	 * Function for calculate the Experimental mass from precursor and it charge
 	 * 
@@ -157,12 +176,41 @@ public class ExperimentalSpectrum extends SGSpectrum {
 		_jmzSpectrumData = jmzSpectrumData;
 	}
 
-	public Map<Double, Byte> getPeakListSymmetrized() {
-		return _peakListSymmetrized;
+	/**
+	 * Get back the type of each mass peak (0 initial, 1 symmetric, 2 both), in the
+	 * same order as the mass array
+	 * 
+	 * @return the type array
+	 */
+	public byte[] getPeakTypes() {
+		return getMassPeaks().getTypeArray();
+	}
+
+	/**
+	 * Get back the sorted masses of the peak list (without symmetric peaks), used
+	 * to count shared peaks with a hit modified
+	 * 
+	 * @return the mass array of the peak list
+	 */
+	public double[] getPeakMassArray() {
+		return getPeaks().getMzArray();
+	}
+
+	/**
+	 * Get back the intensities of the peak list, in the same order as its masses
+	 * 
+	 * @return the intensity array of the peak list
+	 */
+	public double[] getPeakIntensityArray() {
+		return getPeaks().getIntensityArray();
+	}
+
+	public double getTotalIntensity() {
+		return _totalIntensity;
 	}
 
-	public void setPeakListSymmetrized(Map<Double, Byte> peakListSymmetrized) {
-		_peakListSymmetrized = peakListSymmetrized;
+	public void setTotalIntensity(double totalIntensity) {
+		_totalIntensity = totalIntensity;
 	}
 
 }
@@ -0,0 +1,104 @@
+package spectra;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import uk.ac.ebi.pride.tools.jmzreader.JMzReader;
+import uk.ac.ebi.pride.tools.jmzreader.JMzReaderException;
+
+/**
+ * Cache of the experimental spectra already read and filtered, by title, so
+ * that the PSMs of the same spectrum share one spectrum. The number of spectra
+ * kept is bounded : when the cache is full, the spectrum used the least
+ * recently is removed. The cache can be used by several threads, and counts
+ * the spectra found (hits) and the spectra read (misses)
+ *
+ * @author Gregoire Prunier, Albane Lysiak, Dominique Tessier
+ *
+ */
+public class ExperimentalSpectrumCache {
+
+	// Attributes
+	/**
+	 * The maximal number of spectra kept (0 to keep none)
+	 */
+	private final int _capacity;
+
+	/**
+	 * The spectra by title, from the least recently used
+	 */
+	private final Map<String, ExperimentalSpectrum> _spectra;
+
+	/**
+	 * Number of spectra found in the cache and read from the scan file
+	 */
+	private long _nbHit;
+	private long _nbMiss;
+
+	// Constructor
+	/**
+	 * Constructor of an empty cache
+	 *
+	 * @param capacity : the maximal number of spectra kept (0 to keep none)
+	 */
+	public ExperimentalSpectrumCache(int capacity) {
+		_capacity = Math.max(0, capacity);
+		_spectra = new LinkedHashMap<String, ExperimentalSpectrum>(16, 0.75f, true) {
+			private static final long serialVersionUID = 1L;
+
+			@Override
+			protected boolean removeEldestEntry(Map.Entry<String, ExperimentalSpectrum> eldest) {
+				return size() > _capacity;
+			}
+		};
+	}
+
+	// Operators
+	/**
+	 * Give the spectrum of a title, read from the scan file and filtered if it is
+	 * not in the cache
+	 *
+	 * @param title     : the title of the spectrum
+	 * @param scanData  : the scan file
+	 * @param scanIndex : the index of the spectrum in the scan file
+	 * @return the experimental spectrum
+	 * @throws JMzReaderException if the spectrum can't be read
+	 */
+	public synchronized ExperimentalSpectrum getSpectrum(String title, JMzReader scanData, int scanIndex)
+			throws JMzReaderException {
+		ExperimentalSpectrum spectrum = _spectra.get(title);
+		if (spectrum != null) {
+			_nbHit++;
+			return spectrum;
+		}
+
+		_nbMiss++;
+		spectrum = new ExperimentalSpectrum(scanData.getSpectrumByIndex(scanIndex));
+		_spectra.put(title, spectrum);
+		return spectrum;
+	}
+
+	/**
+	 * Give the statistics of the cache to show at the end of the run
+	 *
+	 * @return the number of spectra found in the cache and read
+	 */
+	public synchronized String getSummary() {
+		return _nbHit + " spectra found in cache, " + _nbMiss + " spectra read (cache of " + _capacity
+				+ " spectra)";
+	}
+
+	// Getters
+	public int getCapacity() {
+		return _capacity;
+	}
+
+	public synchronized long getNbHit() {
+		return _nbHit;
+	}
+
+	public synchronized long getNbMiss() {
+		return _nbMiss;
+	}
+
+}
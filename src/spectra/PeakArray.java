@@ -0,0 +1,209 @@
+package spectra;
+
+import java.util.Arrays;
+import java.util.Map;
+
+/**
+ * Peaks of a spectrum stored in parallel primitive arrays : the m/z in
+ * increasing order, with the intensity and the type of each peak at the same
+ * index. A peak only uses 17 bytes and the peaks are read in order, instead of
+ * the entries and boxed values of sorted maps
+ *
+ * @author Gregoire Prunier, Albane Lysiak, Dominique Tessier
+ *
+ */
+public class PeakArray {
+
+	/**
+	 * Types of peak : initial peak of the spectrum, symmetric peak (added by the
+	 * symmetrization), or initial peak that has also a symmetric peak
+	 */
+	public static final byte INITIAL = 0;
+	public static final byte SYMMETRIC = 1;
+	public static final byte BOTH = 2;
+
+	// Attributes
+	/**
+	 * The m/z of the peaks, sorted in increasing order without duplicate
+	 */
+	private final double[] _mz;
+	/**
+	 * The intensity of each peak
+	 */
+	private final double[] _intensity;
+	/**
+	 * The type of each peak (see {@link #INITIAL}, {@link #SYMMETRIC} and
+	 * {@link #BOTH})
+	 */
+	private final byte[] _type;
+
+	// Constructors
+	/**
+	 * Constructor with arrays that are already sorted by m/z, without duplicate
+	 * (they are not copied)
+	 *
+	 * @param mz        : the m/z of the peaks in increasing order
+	 * @param intensity : the intensity of each peak
+	 * @param type      : the type of each peak
+	 */
+	public PeakArray(double[] mz, double[] intensity, byte[] type) {
+		_mz = mz;
+		_intensity = intensity;
+		_type = type;
+	}
+
+	/**
+	 * Create the peaks of a peak list, all of initial type
+	 *
+	 * @param peakList : Map<m/z, Intensity> of the peaks, sorted or not
+	 * @return the peaks sorted by m/z
+	 */
+	public static PeakArray fromPeakList(Map<Double, Double> peakList) {
+		double[] mz = new double[peakList.size()];
+		int i = 0;
+		for (Double mass : peakList.keySet()) {
+			mz[i++] = mass;
+		}
+		Arrays.sort(mz);
+
+		double[] intensity = new double[mz.length];
+		for (i = 0; i < mz.length; i++) {
+			intensity[i] = peakList.get(mz[i]);
+		}
+		return new PeakArray(mz, intensity, new byte[mz.length]);
+	}
+
+	/**
+	 * Create the peaks from unsorted arrays. As in a map, a peak replaces the
+	 * previous peaks of the same m/z
+	 *
+	 * @param mz        : the m/z of the peaks, in the order they are added
+	 * @param intensity : the intensity of each peak
+	 * @param type      : the type of each peak
+	 * @param size      : the number of peaks used in the arrays
+	 * @return the peaks sorted by m/z
+	 */
+	public static PeakArray sortByMz(double[] mz, double[] intensity, byte[] type, int size) {
+		int[] order = new int[size];
+		for (int i = 0; i < size; i++) {
+			order[i] = i;
+		}
+		// a stable sort keeps the peaks of the same m/z in the order they are added
+		mergeSort(order, new int[size], 0, size, mz);
+
+		int nbPeak = 0;
+		for (int i = 0; i < size; i++) {
+			if (i + 1 == size || Double.compare(mz[order[i]], mz[order[i + 1]]) != 0)
+				order[nbPeak++] = order[i];
+		}
+		return select(mz, intensity, type, order, nbPeak);
+	}
+
+	/**
+	 * Keep some peaks
+	 *
+	 * @param indices : the indices of the kept peaks, in increasing order
+	 * @param count   : the number of kept peaks
+	 * @return the kept peaks
+	 */
+	public PeakArray select(int[] indices, int count) {
+		return select(_mz, _intensity, _type, indices, count);
+	}
+
+	/**
+	 * Find a peak with its exact m/z
+	 *
+	 * @param mz : the m/z of the peak
+	 * @return the index of the peak, or -1 if there is no peak at this m/z
+	 */
+	public int indexOf(double mz) {
+		int index = Arrays.binarySearch(_mz, mz);
+		return index >= 0 ? index : -1;
+	}
+
+	/**
+	 * Copy some peaks of arrays
+	 *
+	 * @param mz        : the m/z of the peaks
+	 * @param intensity : the intensity of each peak
+	 * @param type      : the type of each peak
+	 * @param indices   : the indices of the kept peaks, in increasing m/z
+	 * @param count     : the number of kept peaks
+	 * @return the kept peaks
+	 */
+	private static PeakArray select(double[] mz, double[] intensity, byte[] type, int[] indices, int count) {
+		double[] selectedMz = new double[count];
+		double[] selectedIntensity = new double[count];
+		byte[] selectedType = new byte[count];
+		for (int i = 0; i < count; i++) {
+			selectedMz[i] = mz[indices[i]];
+			selectedIntensity[i] = intensity[indices[i]];
+			selectedType[i] = type[indices[i]];
+		}
+		return new PeakArray(selectedMz, selectedIntensity, selectedType);
+	}
+
+	/**
+	 * Stable sort of peak indices by m/z, between from (included) and to
+	 * (excluded)
+	 *
+	 * @param order  : the indices to sort
+	 * @param buffer : a buffer of the same size
+	 * @param from   : the first position to sort
+	 * @param to     : the position after the last one to sort
+	 * @param mz     : the m/z of the peaks
+	 */
+	private static void mergeSort(int[] order, int[] buffer, int from, int to, double[] mz) {
+		if (to - from < 2)
+			return;
+		int middle = (from + to) >>> 1;
+		mergeSort(order, buffer, from, middle, mz);
+		mergeSort(order, buffer, middle, to, mz);
+		if (Double.compare(mz[order[middle - 1]], mz[order[middle]]) <= 0)
+			return;
+
+		System.arraycopy(order, from, buffer, from, to - from);
+		int left = from;
+		int right = middle;
+		for (int i = from; i < to; i++) {
+			if (right == to || (left < middle && Double.compare(mz[buffer[left]], mz[buffer[right]]) <= 0))
+				order[i] = buffer[left++];
+			else
+				order[i] = buffer[right++];
+		}
+	}
+
+	// Getters and Setters
+	public int size() {
+		return _mz.length;
+	}
+
+	public double getMz(int index) {
+		return _mz[index];
+	}
+
+	public double getIntensity(int index) {
+		return _intensity[index];
+	}
+
+	public byte getType(int index) {
+		return _type[index];
+	}
+
+	public void setType(int index, byte type) {
+		_type[index] = type;
+	}
+
+	public double[] getMzArray() {
+		return _mz;
+	}
+
+	public double[] getIntensityArray() {
+		return _intensity;
+	}
+
+	public byte[] getTypeArray() {
+		return _type;
+	}
+
+}
@@ -1,11 +1,7 @@
 package spectra;
 
-import java.util.ArrayList;
-import java.util.Comparator;
-import java.util.LinkedHashMap;
-import java.util.List;
+import java.util.Arrays;
 import java.util.Map;
-import java.util.TreeMap;
 
 import utility.AminoAcids;
 import utility.SGXProperties;
@@ -21,19 +17,15 @@ public class SGSpectrum {
 	// Attributes
 
 	/**
-	 * A Map that contain couple of double corresponding to m/z , Intensity
+	 * The peaks of the spectrum (m/z, Intensity)
 	 */
-	private Map<Double, Double> _peakList;
+	private PeakArray _peaks;
 
 	/**
-	 * A Map that contain couple of double corresponding to m/z , Intensity
+	 * The peaks whose masses are used to fill the matrix : the peaks of the
+	 * spectrum, with the symmetric peaks for an experimental spectrum
 	 */
-	private Map<Double, Double> _totalPeakList;
-
-	/**
-	 * The list of the mass to simplify filling matrix
-	 */
-	private List<Double> _massList;
+	private PeakArray _massPeaks;
 
 	/**
 	 * The mass of the peptide. It can be from precursor for experimental or from
@@ -56,50 +48,58 @@ public class SGSpectrum {
 	 * @param peakList : Map<Double, Double> that contain all peaks
 	 */
 	public SGSpectrum(Map<Double, Double> peakList) {
-		setPeakList(new TreeMap<>(peakList));
-		setMassList(peakList);
-
+		this(PeakArray.fromPeakList(peakList));
 	}
 
-	// Operators
-
 	/**
-	 * This is used to classify peaks in function of their Intensity value
+	 * The GSSpectrum constructor which take in arguments the peaks sorted by m/z
 	 * 
-	 * @param peakList List of peak in Map format <m/z , Intensity>
-	 * @return Intensity value tried peak list map
+	 * @param peaks : PeakArray that contain all peaks
 	 */
-	public Map<Double, Double> intensityReverseClassified(Map<Double, Double> peakList) {
+	public SGSpectrum(PeakArray peaks) {
+		setPeaks(peaks);
+		setMassPeaks(peaks);
 
-		LinkedHashMap<Double, Double> reversedValueMap = new LinkedHashMap<>();
-		peakList.entrySet().stream().sorted(Map.Entry.comparingByValue(Comparator.reverseOrder()))
-				.forEachOrdered(x -> reversedValueMap.put(x.getKey(), x.getValue()));
-
-		return reversedValueMap;
 	}
 
+	// Operators
+
 	/**
-	 * Filter and select peak that have the best value of intensity
+	 * Filter and select peak that have the best value of intensity. The peaks are
+	 * selected with a heap of the kept peaks, without sorting all peaks : the heap
+	 * top is the less intense kept peak, replaced when a more intense one is found.
+	 * For the same intensity, the peaks of lower mass are kept first
 	 * 
 	 * @param numberOfPeak The number of accepted peak that have the best value of
 	 *                     intensity
-	 * @return The Map peak list with best peaks
+	 * @return The peak list with best peaks
 	 */
 	public void filterMostIntense(int numberOfPeak) {
-
-		int i = 1;
-		TreeMap<Double, Double> tempMap = new TreeMap<>();
-		for (Map.Entry<Double, Double> entry : intensityReverseClassified(getPeakList()).entrySet()) {
-			if (i > numberOfPeak) {
-				setPeakList(tempMap);
-				setMassList(tempMap);
-				break;
+		PeakArray peaks = getPeaks();
+		int nbPeak = peaks.size();
+		if (nbPeak <= numberOfPeak)
+			return;
+
+		double[] masses = peaks.getMzArray();
+		double[] intensities = peaks.getIntensityArray();
+		int[] heap = new int[Math.max(0, numberOfPeak)];
+		if (numberOfPeak > 0) {
+			// heap of the indices of the kept peaks, with the less intense at the top
+			for (int i = 0; i < numberOfPeak; i++) {
+				heap[i] = i;
+				siftUp(heap, i, masses, intensities);
+			}
+			for (int i = numberOfPeak; i < nbPeak; i++) {
+				if (isMoreIntense(i, heap[0], masses, intensities)) {
+					heap[0] = i;
+					siftDown(heap, numberOfPeak, masses, intensities);
+				}
 			}
-			tempMap.put(entry.getKey(), entry.getValue());
-			// System.out.println("Key = " + entry.getKey() + ", Value = " +
-			// entry.getValue());
-			i++;
+			// the kept peaks in the order of m/z
+			Arrays.sort(heap);
 		}
+		setPeaks(peaks.select(heap, heap.length));
+		setMassPeaks(getPeaks());
 	}
 
 	/**
@@ -107,112 +107,184 @@ public class SGSpectrum {
 	 * Threshold value
 	 * 
 	 * @param intensityThreshold The Threshold intensity value of accepted peak
-	 * @return The Map peak list without peak with an intensity bellow the Threshold
+	 * @return The peak list without peak with an intensity bellow the Threshold
 	 */
 	public void filterMoreThanIntensity(double intensityThreshold) {
-		TreeMap<Double, Double> tempMap = new TreeMap<>();
-		for (Map.Entry<Double, Double> entry : intensityReverseClassified(getPeakList()).entrySet()) {
-			if (entry.getValue() < intensityThreshold) {
-				setPeakList(tempMap);
-				setMassList(tempMap);
-				break;
-			}
-			tempMap.put(entry.getKey(), entry.getValue());
-			// System.out.println("Key = " + entry.getKey() + ", Value = " +
-			// entry.getValue());
+		PeakArray peaks = getPeaks();
+		double[] intensities = peaks.getIntensityArray();
+		int[] kept = new int[peaks.size()];
+		int nbKept = 0;
+		for (int i = 0; i < intensities.length; i++) {
+			if (!(intensities[i] < intensityThreshold))
+				kept[nbKept++] = i;
+		}
+		// the peak list is kept if no peak is under the threshold
+		if (nbKept < peaks.size()) {
+			setPeaks(peaks.select(kept, nbKept));
+			setMassPeaks(getPeaks());
 		}
 
 	}
 
 	/**
 	 * Filter and select peak that have an Intensity superior than the given rate of
-	 * the maximal intensity value
+	 * the maximal intensity value. The maximal intensity is found in one pass
+	 * before the filter, without sorting the peaks
 	 * 
 	 * @param intensityRate The rate of the maximal intensity (in %)
-	 * @return The Map peak list without peak with an intensity bellow the value of
+	 * @return The peak list without peak with an intensity bellow the value of
 	 *         max rate
 	 */
 	public void filterIntensityRate(int intensityRate) {
-		int i = 0;
-		Double bestIntensity = 1000.0;
-		TreeMap<Double, Double> tempMap = new TreeMap<>();
-		for (Map.Entry<Double, Double> entry : intensityReverseClassified(getPeakList()).entrySet()) {
-			if (i == 0) {
-				bestIntensity = entry.getValue();
-				// System.out.println(bestIntensity * intensityRate / 100d);
-				i++;
-			}
-			if (entry.getValue() < bestIntensity * intensityRate / 100d) {
-				setPeakList(tempMap);
-				setMassList(tempMap);
-				break;
-			}
-			tempMap.put(entry.getKey(), entry.getValue());
+		double[] intensities = getPeaks().getIntensityArray();
+		if (intensities.length == 0)
+			return;
+
+		double bestIntensity = intensities[0];
+		for (double intensity : intensities) {
+			if (Double.compare(intensity, bestIntensity) > 0)
+				bestIntensity = intensity;
+		}
+		filterMoreThanIntensity(bestIntensity * intensityRate / 100d);
+
+	}
+
+	/**
+	 * Compare the intensities of two peaks, the peak of lower mass is the more
+	 * intense if they are equal
+	 * 
+	 * @param i           : index of the first peak
+	 * @param j           : index of the second peak
+	 * @param masses      : masses of the peaks
+	 * @param intensities : intensities of the peaks
+	 * @return true if the first peak is before the second one by intensity
+	 */
+	private static boolean isMoreIntense(int i, int j, double[] masses, double[] intensities) {
+		int comparison = Double.compare(intensities[i], intensities[j]);
+		return comparison > 0 || (comparison == 0 && masses[i] < masses[j]);
+	}
 
-			// System.out.println("Key = " + entry.getKey() + ", Value = " +
-			// entry.getValue());
+	/**
+	 * Move up a new peak in the heap of kept peaks (the less intense at the top)
+	 * 
+	 * @param heap        : indices of the kept peaks
+	 * @param position    : position of the new peak in the heap
+	 * @param masses      : masses of the peaks
+	 * @param intensities : intensities of the peaks
+	 */
+	private static void siftUp(int[] heap, int position, double[] masses, double[] intensities) {
+		int index = heap[position];
+		while (position > 0) {
+			int parent = (position - 1) >>> 1;
+			if (!isMoreIntense(heap[parent], index, masses, intensities))
+				break;
+			heap[position] = heap[parent];
+			position = parent;
 		}
+		heap[position] = index;
+	}
 
+	/**
+	 * Move down the top peak in the heap of kept peaks (the less intense at the
+	 * top)
+	 * 
+	 * @param heap        : indices of the kept peaks
+	 * @param size        : number of kept peaks
+	 * @param masses      : masses of the peaks
+	 * @param intensities : intensities of the peaks
+	 */
+	private static void siftDown(int[] heap, int size, double[] masses, double[] intensities) {
+		int index = heap[0];
+		int position = 0;
+		while (2 * position + 1 < size) {
+			int child = 2 * position + 1;
+			if (child + 1 < size && isMoreIntense(heap[child], heap[child + 1], masses, intensities))
+				child++;
+			if (!isMoreIntense(index, heap[child], masses, intensities))
+				break;
+			heap[position] = heap[child];
+			position = child;
+		}
+		heap[position] = index;
 	}
 
 	// Utility method
 
 	/**
-	 * A static method useful to check if the listMass contain the proposed mass
-	 * value and to remove some peaks
+	 * Create a sorted index of masses to check quickly if a mass is already
+	 * present at the precision of the scan. The Y base mass is always in the index
+	 * (it is taken as present for all checks)
 	 * 
-	 * @param value     : The mass value to check if it is already inside the
-	 *                  massList
-	 * @param list      : The massList to check in
-	 * @param precision : The precision of values in the scan
-	 * @return
-	 */
-	public static boolean contains(Double value, List<Double> list) {
-		list.add(AminoAcids.getYBaseMass());
-		for (Double e : list) {
-			if (value.equals(e) || Math.abs(value - e) < SGXProperties.PRECISION) {
-				// for debug:
-				// System.out.println("We are same at a precision of " + getPrecision() + " : "
-				// + value + " - " + e);
-				return true;
-			}
-		}
-		return false;
+	 * @param masses : the masses to index (not modified)
+	 * @return the sorted masses with the Y base mass
+	 */
+	public static double[] createMassIndex(double[] masses) {
+		double[] massIndex = Arrays.copyOf(masses, masses.length + 1);
+		massIndex[masses.length] = AminoAcids.getYBaseMass();
+		Arrays.sort(massIndex);
+		return massIndex;
 	}
 
-	// Getters and Setters
-	public Map<Double, Double> getPeakList() {
-		return _peakList;
+	/**
+	 * A static method useful to check if a mass index contains the proposed mass
+	 * value at the precision of the scan. Only the nearest masses on each side of
+	 * the value need to be compared
+	 * 
+	 * @param value     : The mass value to check if it is already inside the index
+	 * @param massIndex : The sorted masses to check in (see
+	 *                  {@link #createMassIndex(double[])})
+	 * @return true if a mass is equal to the value at the precision
+	 */
+	public static boolean contains(double value, double[] massIndex) {
+		// first mass that is not lower than the value
+		int low = 0;
+		int high = massIndex.length;
+		while (low < high) {
+			int middle = (low + high) >>> 1;
+			if (massIndex[middle] < value)
+				low = middle + 1;
+			else
+				high = middle;
+		}
+		return (low < massIndex.length && isSameMass(value, massIndex[low]))
+				|| (low > 0 && isSameMass(value, massIndex[low - 1]));
 	}
 
-	public void setPeakList(Map<Double, Double> map) {
-		_peakList = map;
+	/**
+	 * Compare two masses at the precision of the scan
+	 * 
+	 * @param value : the first mass
+	 * @param mass  : the second mass
+	 * @return true if the masses are equal at the precision
+	 */
+	private static boolean isSameMass(double value, double mass) {
+		return value == mass || Math.abs(value - mass) < SGXProperties.PRECISION;
 	}
 
-	public Map<Double, Double> getTotalPeakList() {
-		return _totalPeakList;
+	// Getters and Setters
+	public PeakArray getPeaks() {
+		return _peaks;
 	}
 
-	public void setTotalPeakList(Map<Double, Double> totalPeakList) {
-		_totalPeakList = totalPeakList;
+	public void setPeaks(PeakArray peaks) {
+		_peaks = peaks;
 	}
 
-	public List<Double> getMassList() {
-		return _massList;
+	public PeakArray getMassPeaks() {
+		return _massPeaks;
 	}
 
-	public void setMassList(List<Double> massList) {
-		_massList = massList;
+	public void setMassPeaks(PeakArray massPeaks) {
+		_massPeaks = massPeaks;
 	}
 
 	/**
-	 * Create the Mass list from the peakList
+	 * Get back the masses used to fill the matrix, sorted in increasing order
 	 * 
-	 * @param peakList
+	 * @return the mass array
 	 */
-	public void setMassList(Map<Double, Double> peakList) {
-		List<Double> massList = new ArrayList<>(peakList.keySet());
-		_massList = massList;
+	public double[] getMassArray() {
+		return _massPeaks == null ? new double[0] : _massPeaks.getMzArray();
 	}
 
 	public Double getMainMass() {
@@ -1,8 +1,5 @@
 package spectra;
 
-import java.util.Map;
-import java.util.TreeMap;
-
 import utility.AminoAcids;
 
 /**
@@ -48,16 +45,19 @@ public class TheoreticalSpectrum extends SGSpectrum {
 	 * produce in mass spectrometry
 	 * 
 	 * @param sequence : The peptide sequence
-	 * @return : peak list in Map<m/z, intensity> format
+	 * @return : peaks sorted by m/z
 	 */
-	public static Map<Double, Double> generatePeakList(String sequence) {
-		Map<Double, Double> tempMap = new TreeMap<>();
+	public static PeakArray generatePeakList(String sequence) {
+		int nbPeak = sequence.length() + 1;
+		double[] masses = new double[nbPeak];
+		double[] intensities = new double[nbPeak];
 
 		for (int i = 0; i <= sequence.length(); i++) {
 			// b peaks
-			tempMap.put((AminoAcids.getSequenceMass(sequence.substring(0, i)) + AminoAcids.getUnitMass("NT")), 10000.0);
+			masses[i] = AminoAcids.getSequenceMass(sequence.substring(0, i)) + AminoAcids.getUnitMass("NT");
+			intensities[i] = 10000.0;
 		}
-		return tempMap;
+		return PeakArray.sortByMz(masses, intensities, new byte[nbPeak], nbPeak);
 	}
 
 	
@@ -76,8 +76,9 @@ public class TheoreticalSpectrum extends SGSpectrum {
 
 		StringBuilder querry = new StringBuilder(getPeptideSequence() + "\n");
 
-		for (Double mass : getMassList()) {
-			querry.append(mass + "\t" + getPeakList().get(mass) + "\n");
+		PeakArray peaks = getPeaks();
+		for (int i = 0; i < peaks.size(); i++) {
+			querry.append(peaks.getMz(i) + "\t" + peaks.getIntensity(i) + "\n");
 		}
 		return querry.toString();
 	}
@@ -1,6 +1,8 @@
 package utility;
 
+import java.util.Arrays;
 import java.util.HashMap;
+import java.util.Map;
 
 /**
  * This class is used to manipulates masses and get the mass of peptide or amino
@@ -16,6 +18,12 @@ public class AminoAcids {
 	 */
 	private static HashMap<String, Double> massTable = new HashMap<>();
 
+	/**
+	 * The masses of the amino acids indexed by their letter, to get them without
+	 * making a String for each residue (NaN if the letter is not in the table)
+	 */
+	private static double[] letterMassTable = new double[128];
+
 	static {
 
 		massTable.put("G", 57.021463721083); // Glycine
@@ -48,6 +56,7 @@ public class AminoAcids {
 		massTable.put("CT", 15.99491461956 + 1.007825032241); // OH
 		massTable.put("", 0.0);
 
+		updateLetterMassTable();
 	}
 
 	private AminoAcids() {
@@ -73,6 +82,8 @@ public class AminoAcids {
 	 * @return mass of AA
 	 */
 	public static double getUnitMass(char aminoAcidLetter) {
+		if (aminoAcidLetter < letterMassTable.length && !Double.isNaN(letterMassTable[aminoAcidLetter]))
+			return letterMassTable[aminoAcidLetter];
 		return massTable.get(String.valueOf(aminoAcidLetter));
 	}
 
@@ -146,6 +157,19 @@ public class AminoAcids {
 		massTable.put("CT", 15.99491461956 + 1.007825032241 + SGXProperties.AA_MODIFS.get("CT")); // OH
 		massTable.put("", 0.0);
 
+		updateLetterMassTable();
+	}
+
+	/**
+	 * Copy the masses of the one letter amino acids in the table indexed by letter
+	 */
+	private static void updateLetterMassTable() {
+		Arrays.fill(letterMassTable, Double.NaN);
+		for (Map.Entry<String, Double> entry : massTable.entrySet()) {
+			String letter = entry.getKey();
+			if (letter.length() == 1 && letter.charAt(0) < letterMassTable.length)
+				letterMassTable[letter.charAt(0)] = entry.getValue();
+		}
 	}
 
 }
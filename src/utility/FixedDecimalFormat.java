@@ -0,0 +1,229 @@
+package utility;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.text.DecimalFormat;
+import java.text.DecimalFormatSymbols;
+
+/**
+ * Write decimal numbers with a fixed number of decimals. The text is the same
+ * as the one of a DecimalFormat with the pattern "0.00" (with as many 0 as
+ * decimals) and the symbols of the default locale : the exact value of the
+ * double is rounded half even, and negative numbers (even -0,00) have a minus
+ * sign.
+ *
+ * Unlike DecimalFormat, the object is not modified when a number is formatted,
+ * so it can be shared by all the threads of the alignments
+ *
+ * @author Gregoire Prunier, Albane Lysiak, Dominique Tessier
+ *
+ */
+public class FixedDecimalFormat {
+
+	/**
+	 * Powers of ten for the numbers of decimals written without BigDecimal
+	 */
+	private static final double[] POWERS_OF_TEN = { 1e0, 1e1, 1e2, 1e3, 1e4, 1e5, 1e6, 1e7, 1e8, 1e9, 1e10, 1e11,
+			1e12, 1e13, 1e14, 1e15 };
+
+	/**
+	 * Under this value multiplied by 10^digits, the shortest decimal text of a
+	 * double (that DecimalFormat rounds) and its exact value are rounded the same
+	 * way, except when the text ends with a 5 just after the last decimal
+	 */
+	private static final double MAX_SCALED_VALUE = 0x1p47;
+
+	// Attributes
+	/**
+	 * The number of decimals written
+	 */
+	private final int _digits;
+	/**
+	 * The equivalent DecimalFormat, only used to read the symbols and to write
+	 * numbers that are not finite or too big (a copy is made each time)
+	 */
+	private final DecimalFormat _decimalFormat;
+	/**
+	 * Symbols of the text : digits, decimal separator, and the texts written
+	 * before and after positive and negative numbers (the minus sign)
+	 */
+	private final char _zeroDigit;
+	private final String _decimalSeparator;
+	private final String _positivePrefix;
+	private final String _positiveSuffix;
+	private final String _negativePrefix;
+	private final String _negativeSuffix;
+
+	// Constructors
+	/**
+	 * Constructor with the symbols of the default locale
+	 *
+	 * @param digits : the number of decimals, at least 1
+	 */
+	public FixedDecimalFormat(int digits) {
+		this(digits, DecimalFormatSymbols.getInstance());
+	}
+
+	/**
+	 * Constructor with given symbols
+	 *
+	 * @param digits  : the number of decimals, at least 1
+	 * @param symbols : the decimal separator, minus sign and digits to use
+	 */
+	public FixedDecimalFormat(int digits, DecimalFormatSymbols symbols) {
+		_digits = digits;
+		StringBuilder pattern = new StringBuilder("0.");
+		for (int i = 0; i < digits; i++)
+			pattern.append('0');
+		_decimalFormat = new DecimalFormat(pattern.toString(), symbols);
+
+		// the decimal separator is the text between the unit and the decimals of 0
+		String zero = _decimalFormat.format(0.0);
+		_zeroDigit = symbols.getZeroDigit();
+		_decimalSeparator = zero.substring(1, zero.length() - digits);
+		_positivePrefix = _decimalFormat.getPositivePrefix();
+		_positiveSuffix = _decimalFormat.getPositiveSuffix();
+		_negativePrefix = _decimalFormat.getNegativePrefix();
+		_negativeSuffix = _decimalFormat.getNegativeSuffix();
+	}
+
+	// Operators
+	/**
+	 * Write a number
+	 *
+	 * @param value : the number
+	 * @return the number with the fixed number of decimals
+	 */
+	public String format(double value) {
+		return append(new StringBuilder(16), value).toString();
+	}
+
+	/**
+	 * Write a number at the end of a text
+	 *
+	 * @param text  : the text where the number is added
+	 * @param value : the number
+	 * @return the text
+	 */
+	public StringBuilder append(StringBuilder text, double value) {
+		long unscaled = unscaledValue(value);
+		if (unscaled < 0) {
+			// not a finite number, too big or too near of one half
+			return text.append(((DecimalFormat) _decimalFormat.clone()).format(value));
+		}
+
+		boolean negative = isNegative(value);
+		text.append(negative ? _negativePrefix : _positivePrefix);
+		long power = (long) POWERS_OF_TEN[_digits];
+		appendDigits(text, unscaled / power, 1);
+		text.append(_decimalSeparator);
+		appendDigits(text, unscaled % power, _digits);
+		return text.append(negative ? _negativeSuffix : _positiveSuffix);
+	}
+
+	/**
+	 * Give the number of characters of a written number, without writing it
+	 * 
+	 * @param value : the number
+	 * @return the length of the number with the fixed number of decimals
+	 */
+	public int getLength(double value) {
+		long unscaled = unscaledValue(value);
+		if (unscaled < 0)
+			return format(value).length();
+
+		int length = isNegative(value) ? _negativePrefix.length() + _negativeSuffix.length()
+				: _positivePrefix.length() + _positiveSuffix.length();
+		long power = (long) POWERS_OF_TEN[_digits];
+		return length + countDigits(unscaled / power) + _decimalSeparator.length() + _digits;
+	}
+
+	/**
+	 * Round a number to the fixed number of decimals
+	 *
+	 * @param value : the number
+	 * @return the nearest double of the written number
+	 */
+	public double round(double value) {
+		long unscaled = unscaledValue(value);
+		if (unscaled < 0)
+			return new BigDecimal(value).setScale(_digits, RoundingMode.HALF_EVEN).doubleValue();
+
+		double rounded = unscaled / POWERS_OF_TEN[_digits];
+		return isNegative(value) && unscaled != 0 ? -rounded : rounded;
+	}
+
+	/**
+	 * Give the absolute value of a number multiplied by 10^digits and rounded half
+	 * even, computed from the exact value of the double
+	 *
+	 * @param value : the number
+	 * @return the rounded value, or -1 if the number is not finite, too big or so
+	 *         near of one half that it must be rounded by DecimalFormat or
+	 *         BigDecimal
+	 */
+	private long unscaledValue(double value) {
+		if (Double.isNaN(value) || Double.isInfinite(value) || _digits >= POWERS_OF_TEN.length)
+			return -1;
+
+		double scaled = Math.abs(value) * POWERS_OF_TEN[_digits];
+		if (scaled >= MAX_SCALED_VALUE)
+			return -1;
+
+		// the product is rounded, the fraction is compared to one half only when
+		// this error can't change the result
+		double floor = Math.floor(scaled);
+		double fraction = scaled - floor;
+		if (Math.abs(fraction - 0.5) > 2 * Math.ulp(scaled))
+			return (long) floor + (fraction > 0.5 ? 1 : 0);
+		return -1;
+	}
+
+	/**
+	 * Write the digits of a positive number
+	 *
+	 * @param text      : the text where the digits are added
+	 * @param number    : the number
+	 * @param minDigits : the minimal number of digits (0 are added before)
+	 */
+	private void appendDigits(StringBuilder text, long number, int minDigits) {
+		int nbDigits = countDigits(number);
+		for (int i = nbDigits; i < minDigits; i++)
+			text.append(_zeroDigit);
+
+		long power = 1;
+		for (int i = 1; i < nbDigits; i++)
+			power *= 10;
+		for (; power > 0; power /= 10)
+			text.append((char) (_zeroDigit + (number / power) % 10));
+	}
+
+	/**
+	 * Count the digits of a positive number
+	 *
+	 * @param number : the number
+	 * @return the number of digits (1 for 0)
+	 */
+	public static int countDigits(long number) {
+		int nbDigits = 1;
+		for (long rest = number / 10; rest > 0; rest /= 10)
+			nbDigits++;
+		return nbDigits;
+	}
+
+	/**
+	 * Check the sign of a number, -0.0 is negative
+	 *
+	 * @param value : the number
+	 * @return true if the number is written with a minus sign
+	 */
+	private static boolean isNegative(double value) {
+		return Double.doubleToRawLongBits(value) < 0;
+	}
+
+	// Getters
+	public int getDigits() {
+		return _digits;
+	}
+
+}
@@ -3,7 +3,6 @@ package utility;
 import java.io.FileInputStream;
 import java.io.IOException;
 import java.io.InputStream;
-import java.text.DecimalFormat;
 import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.Iterator;
@@ -25,9 +24,10 @@ public class SGXProperties {
 	// Variables can be modified in the config.properties file.
 
 	/**
-	 * Determines how decimal numbers are written (how many numbers after comma)
+	 * Determines how decimal numbers are written (how many numbers after comma).
+	 * It is shared by the threads of the alignments
 	 */
-	public static DecimalFormat DECIMALFORM = new DecimalFormat("0.00");
+	public static FixedDecimalFormat DECIMALFORM = new FixedDecimalFormat(2);
 	/**
 	 * Fragment Precision with 0.02 by default but can be changed
 	 */
@@ -55,6 +55,44 @@ public class SGXProperties {
 	 */
 	public static int SCORE_MIN_DISPLAY = 0;
 
+	/**
+	 * Maximal cumulated mass shift (in Da) between theoretical and experimental
+	 * peaks that is explored during alignment (banded alignment). Cases with a
+	 * bigger mass difference are skipped. 0 (default) explores all cases
+	 */
+	public static double MAX_SHIFT_MASS = 0;
+
+	/**
+	 * Score mode (sg.mode=score) for the triage of many PSMs : the alignment only
+	 * computes the best score, without backtrack and post-processing, and the
+	 * output only gives the mass delta, the initial shared peaks and the score.
+	 * The default mode (sg.mode=full) makes the complete alignment
+	 */
+	public static boolean SCORE_MODE = false;
+
+	/**
+	 * Number of alignments written for each PSM (sg.topK) : the best one and the
+	 * next best ones, backtracked in the same matrices from cases of the last row
+	 * with other origins. Above 1, the last column gives the rank of the
+	 * alignment. Not used in score mode
+	 */
+	public static int TOP_K = 1;
+
+	/**
+	 * Linear memory mode (sg.linearMemory) for spectra with many peaks : instead
+	 * of all rows of the alignment, only checkpoints every few rows are kept, and
+	 * the rows read by the backtrack are computed again from them. The results
+	 * are the same as with all rows
+	 */
+	public static boolean LINEAR_MEMORY = false;
+
+	/**
+	 * Maximal number of experimental spectra kept after reading and filtering
+	 * (sg.spectrumCacheSize), so that the PSMs of the same spectrum don't read it
+	 * again. The least recently used spectrum is removed first, 0 keeps none
+	 */
+	public static int SPECTRUM_CACHE_SIZE = 1000;
+
 	/**
 	 * Defines if debug information is written (command mode)
 	 * we can select more precisely what we want to show.
@@ -167,6 +205,15 @@ public class SGXProperties {
 	
 	public static boolean BETTER_END_RA = false;
 
+	/**
+	 * Column indices of the score table given by {@link #createScoreTable()}. Rows
+	 * of the table are the peak types : 0 (native), 1 (symmetric), 2 (both)
+	 */
+	public static final int SCORE_ALIGN = 0;
+	public static final int SCORE_REALIGN = 1;
+	public static final int SCORE_REALIGN_NO = 2;
+	public static final int SCORE_REALIGN_END = 3;
+
 	// constructor
 	private SGXProperties() {
 
@@ -197,12 +244,24 @@ public class SGXProperties {
 
 			SCORE_MIN_DISPLAY = Integer.valueOf(prop.getProperty("sg.scoreMinDisplay"));
 
-			// set the decimal format
-			String decForm = "0.0";
-			for (int i = 1; i < Integer.valueOf(prop.getProperty("sg.decimalFormat")); i++) {
-				decForm += "0";
-			}
-			DECIMALFORM = new DecimalFormat(decForm);
+			if (prop.getProperty("sg.maxShiftMass") != null)
+				MAX_SHIFT_MASS = Double.valueOf(prop.getProperty("sg.maxShiftMass"));
+
+			if (prop.getProperty("sg.mode") != null)
+				SCORE_MODE = prop.getProperty("sg.mode").trim().equals("score");
+
+			if (prop.getProperty("sg.topK") != null)
+				TOP_K = Math.max(1, Integer.valueOf(prop.getProperty("sg.topK")));
+
+			if (prop.getProperty("sg.linearMemory") != null)
+				LINEAR_MEMORY = Boolean.valueOf(prop.getProperty("sg.linearMemory").trim());
+
+			if (prop.getProperty("sg.spectrumCacheSize") != null)
+				SPECTRUM_CACHE_SIZE = Math.max(0, Integer.valueOf(prop.getProperty("sg.spectrumCacheSize").trim()));
+
+			// set the decimal format (at least one decimal)
+			int nbDecimals = Integer.valueOf(prop.getProperty("sg.decimalFormat"));
+			DECIMALFORM = new FixedDecimalFormat(Math.max(1, nbDecimals));
 
 			DEBUG_MODE = Boolean.valueOf(prop.getProperty("sg.debug"));
 
@@ -419,6 +478,30 @@ public class SGXProperties {
 			return "";
 	}
 
+	/**
+	 * Create the table of scores to apply for each type of experimental peak
+	 * (row) and each type of alignment (column). The re-alignment score on the last
+	 * amino acid takes into account BETTER_END_RA
+	 * 
+	 * @return int[peak type][alignment type] table of scores
+	 */
+	public static int[][] createScoreTable() {
+		String[][] keys = { { _alignNative, _reAlignNative, _reAlignNativeNoOffset },
+				{ _alignSym, _reAlignSym, _reAlignSymNoOffset }, { _alignBoth, _reAlignBoth, _reAlignBothNoOffset } };
+		int[][] scoreTable = new int[3][4];
+
+		for (int type = 0; type < 3; type++) {
+			scoreTable[type][SCORE_ALIGN] = SCORETOAPPLY.get(keys[type][0]);
+			scoreTable[type][SCORE_REALIGN] = SCORETOAPPLY.get(keys[type][1]);
+			scoreTable[type][SCORE_REALIGN_NO] = SCORETOAPPLY.get(keys[type][2]);
+			if (BETTER_END_RA)
+				scoreTable[type][SCORE_REALIGN_END] = SCORETOAPPLY.get(_nonAlign) + scoreTable[type][SCORE_ALIGN];
+			else
+				scoreTable[type][SCORE_REALIGN_END] = scoreTable[type][SCORE_REALIGN];
+		}
+		return scoreTable;
+	}
+
 	/**
 	 * set values of applied scores in according to the type of alignment
 	 * 